@@ -6,14 +6,100 @@
  */
 package cs1530.dbdemo;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.*;
+import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.Properties;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Scanner;
+import java.util.stream.Stream;
 
 public class App {
+    private static final int POOL_MIN_SIZE = 2;
+    private static final int POOL_MAX_SIZE = 8;
+    private static final long POOL_IDLE_TIMEOUT_MILLIS = 60_000;
+    private static final long POOL_BORROW_TIMEOUT_MILLIS = 30_000;
+    private static final int POOL_STATEMENT_CACHE_SIZE = 64;
+    // Set e.g. -Ddbdemo.metricsDumpSeconds=60 to print query statistics to stderr periodically
+    private static final String METRICS_DUMP_PROPERTY = "dbdemo.metricsDumpSeconds";
+    private static final List<String> BATCH_FORMATS = List.of("table", "csv", "jsonl");
+    // Set -Ddbdemo.seed=true to restore the sample rows in an existing database
+    private static final String SEED_PROPERTY = "dbdemo.seed";
+    // The database files, or the name of the database for the in-memory storage profile
+    private static final String DATABASE_PATH = "./database/h2_data_storage";
+    // The defaults for --generate
+    private static final int GENERATED_STORES = 1000;
+    private static final int GENERATED_COFFEES = 100;
+    private static final LocalDate GENERATED_FIRST_DAY = LocalDate.of(2024, 1, 1);
+    private static final int GENERATED_DAYS = 365;
+
+    // The table writer for interactive results and the stdout it writes to
+    private static PrintStream tableWriterTarget;
+    private static RowOutput tableOutput;
+    private static TableRowWriter tableWriter;
+
     public static void main(String[] args) {
+        // With --batch, queries are read from a file or stdin instead of the interactive menu
+        String batchInput = null;
+        String batchFormat = "csv";
+        String batchOutput = null;
+        // With --generate, synthetic rows are loaded before the batch or menu runs
+        long generateReceipts = 0;
+        int generateStores = GENERATED_STORES;
+        int generateCoffees = GENERATED_COFFEES;
+        long generateSeed = 1;
+        // Snapshots are restored in place of seeding, and exported once any synthetic rows are loaded
+        String exportSnapshot = null;
+        String restoreSnapshot = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (i + 1 == args.length) {
+                    printUsage();
+                    return;
+                }
+                switch (args[i]) {
+                    case "--batch" -> batchInput = args[++i];
+                    case "--format" -> batchFormat = args[++i];
+                    case "--out" -> batchOutput = args[++i];
+                    case "--generate" -> generateReceipts = Long.parseLong(args[++i]);
+                    case "--stores" -> generateStores = Integer.parseInt(args[++i]);
+                    case "--coffees" -> generateCoffees = Integer.parseInt(args[++i]);
+                    case "--seed" -> generateSeed = Long.parseLong(args[++i]);
+                    case "--export-snapshot" -> exportSnapshot = args[++i];
+                    case "--restore-snapshot" -> restoreSnapshot = args[++i];
+                    default -> {
+                        printUsage();
+                        return;
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            printUsage();
+            return;
+        }
+        if (!BATCH_FORMATS.contains(batchFormat) || generateReceipts < 0 || generateStores < 1 || generateCoffees < 1) {
+            printUsage();
+            return;
+        }
+        StorageProfile profile;
+        try {
+            profile = StorageProfile.fromSystemProperty();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown -D" + StorageProfile.PROPERTY + ", expected one of "
+                    + Arrays.toString(StorageProfile.values()));
+            return;
+        }
+
         /*
           Attempt to establish a connection to the database
           Java try-with-resources will create a connection and
@@ -23,15 +109,49 @@ public class App {
         props.setProperty("user", "testUser");
         props.setProperty("password", "testPassword");
 
-        // The URL can be updated for other DBMSs (provided that a supported driver exists)
-        try (Connection conn = DriverManager.getConnection("jdbc:h2:./database/h2_data_storage", props);
+        // Query statistics are always available over JMX, and optionally dumped as text
+        long metricsDumpSeconds = Long.getLong(METRICS_DUMP_PROPERTY, 0);
+        if (metricsDumpSeconds > 0) {
+            QueryMetrics.startPeriodicDump(System.err, metricsDumpSeconds * 1000);
+        }
+
+        // The URL can be updated for other DBMSs (provided that a supported driver exists), and the
+        // storage profile picks between an in-memory database and file databases tuned for reads or ingest
+        // The helpers borrow connections from the pool rather than sharing a single connection
+        try (ConnectionPool pool = new ConnectionPool(profile.url(DATABASE_PATH), props,
+                POOL_MIN_SIZE, POOL_MAX_SIZE, POOL_IDLE_TIMEOUT_MILLIS, POOL_BORROW_TIMEOUT_MILLIS, POOL_STATEMENT_CACHE_SIZE);
              Scanner scanner = new Scanner(System.in)) {
             int menu = -1;
 
+            // Create the tables or apply any missing migrations. The sample rows are only
+            // added to a new database unless they are asked for, so existing data is kept.
+            SchemaManager schemaManager = new SchemaManager(pool);
+            int previousVersion = schemaManager.migrate();
+            SnapshotManager snapshotManager = new SnapshotManager(pool, POOL_MAX_SIZE);
+            if (restoreSnapshot != null) {
+                System.err.println("Restored snapshot: " + snapshotManager.restore(Path.of(restoreSnapshot)));
+            } else if (previousVersion == 0 || Boolean.getBoolean(SEED_PROPERTY)) {
+                schemaManager.seed();
+            }
+            if (generateReceipts > 0) {
+                SyntheticDataGenerator generator = new SyntheticDataGenerator(generateSeed, generateStores, generateCoffees,
+                        GENERATED_FIRST_DAY, GENERATED_DAYS);
+                System.err.println("Loaded synthetic data: " + generator.load(pool, generateReceipts));
+            }
+            if (exportSnapshot != null) {
+                System.err.println("Exported snapshot: " + snapshotManager.export(Path.of(exportSnapshot)));
+            }
+
             // Helper Classes for querying the H2 database using JDBC
-            StoreQueryHelper storeHelper = new StoreQueryHelper(conn);
-            CoffeeQueryHelper coffeeHelper = new CoffeeQueryHelper(conn);
-            ReceiptQueryHelper receiptHelper = new ReceiptQueryHelper(conn);
+            StoreQueryHelper storeHelper = new StoreQueryHelper(pool);
+            CoffeeQueryHelper coffeeHelper = new CoffeeQueryHelper(pool);
+            ReceiptQueryHelper receiptHelper = new ReceiptQueryHelper(pool);
+            SalesQueryHelper salesHelper = new SalesQueryHelper(pool);
+
+            if (batchInput != null) {
+                runBatch(batchInput, batchFormat, batchOutput, storeHelper, coffeeHelper, receiptHelper);
+                return;
+            }
 
             // For storing the result rows from queries
             List<RowInterface> queryResults;
@@ -118,8 +238,8 @@ public class App {
                     case 9:
                         System.out.println("You've selected to find all receipts:");
 
-                        queryResults = receiptHelper.findAll();
-                        printResultRows(queryResults);
+                        // Streamed, since the receipt table can be far larger than memory
+                        printResultRows(receiptHelper.streamAll());
                         break;
                     case 10:
                         System.out.println("You've selected to find all receipts with a given receiptID: Please enter the receiptID");
@@ -168,6 +288,41 @@ public class App {
                         queryResults = receiptHelper.findReceiptInDateRange(lowerDate, upperDate);
                         printResultRows(queryResults);
                         break;
+                    case 15:
+                        System.out.println("You've selected to total the sales of each store:");
+                        queryResults = salesHelper.salesByStore();
+                        printResultRows(queryResults);
+                        break;
+                    case 16:
+                        System.out.println("You've selected to total the sales of each coffee:");
+                        queryResults = salesHelper.salesByCoffee();
+                        printResultRows(queryResults);
+                        break;
+                    case 17:
+                        System.out.println("You've selected to total sales over time. Please enter the time bucket: HOUR, DAY or MONTH");
+                        SalesQueryHelper.TimeBucket bucket = readTimeBucket(scanner);
+                        System.out.println("Please enter the lower date of the range using the following format: YYYY-MM-DD");
+                        Date lowerSalesDate = Date.valueOf(scanner.nextLine());
+                        System.out.println("Please enter the upper date of the range using the following format: YYYY-MM-DD");
+                        Date upperSalesDate = Date.valueOf(scanner.nextLine());
+
+                        queryResults = salesHelper.salesByTimeBucket(bucket, lowerSalesDate, upperSalesDate);
+                        printResultRows(queryResults);
+                        break;
+                    case 18:
+                        System.out.println("You've selected to find the receipts for a given storeNumber with their coffee and store details. Please enter the storeNumber");
+                        int enrichedStoreNumber = scanner.nextInt();
+                        scanner.nextLine();
+                        queryResults = receiptHelper.findEnrichedByStoreNumber(enrichedStoreNumber);
+                        printResultRows(queryResults);
+                        break;
+                    case 19:
+                        System.out.println("You've selected to find the receipts for a given coffeeID with their coffee and store details. Please enter the coffeeID");
+                        int enrichedCoffeeID = scanner.nextInt();
+                        scanner.nextLine();
+                        queryResults = receiptHelper.findEnrichedByCoffeeID(enrichedCoffeeID);
+                        printResultRows(queryResults);
+                        break;
                     case 0:
                         System.out.println("Goodbye!");
                         break;
@@ -179,6 +334,58 @@ public class App {
             System.err.println("Message = " + e.getMessage());
             System.err.println("SQLState = " + e.getSQLState());
             System.err.println("SQL Code = " + e.getErrorCode());
+        } catch (IOException e) {
+            System.err.println("The snapshot could not be completed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads a time bucket name, prompting again until the input names one
+     */
+    private static SalesQueryHelper.TimeBucket readTimeBucket(Scanner scanner) {
+        while (true) {
+            String bucketName = scanner.nextLine().trim();
+            try {
+                return SalesQueryHelper.TimeBucket.valueOf(bucketName.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.out.println("\"" + bucketName + "\" is not a time bucket. Please enter HOUR, DAY or MONTH");
+            }
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: App [--restore-snapshot <dir>] [--generate <receipts> [--stores <n>] [--coffees <n>] [--seed <n>]]");
+        System.err.println("           [--export-snapshot <dir>]");
+        System.err.println("           [--batch <file|-> [--format " + String.join("|", BATCH_FORMATS) + "] [--out <file>]]");
+        System.err.println("  --generate Load the given number of synthetic receipts before running, together with");
+        System.err.println("            --stores stores (default " + GENERATED_STORES + ") and --coffees coffees (default "
+                + GENERATED_COFFEES + ").");
+        System.err.println("            The same --seed (default 1) always generates the same rows");
+        System.err.println("  --restore-snapshot Replace the stores, coffees and receipts with a snapshot");
+        System.err.println("  --export-snapshot  Write the stores, coffees and receipts to a snapshot");
+        System.err.println("  --batch   Run the query commands in the file, or stdin for -, instead of the menu.");
+        System.err.println("            Each line is a menu option from 1 to 14 and its values, separated by commas,");
+        System.err.println("            e.g. 4,Pittsburgh,Pennsylvania or 14,2024-10-01,2024-11-30");
+        System.err.println("  --format  The format results are written in (default csv)");
+        System.err.println("  --out     The file results are written to (default stdout)");
+    }
+
+    /**
+     * Runs query commands from a file or stdin and streams the results as
+     * a table, CSV or JSON Lines to a file or stdout
+     */
+    private static void runBatch(String input, String format, String output, StoreQueryHelper storeHelper,
+                                 CoffeeQueryHelper coffeeHelper, ReceiptQueryHelper receiptHelper) {
+        try (BufferedReader in = input.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(input));
+             RowOutput out = new RowOutput(output == null
+                     ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                     : Files.newBufferedWriter(Path.of(output)))) {
+            BatchRunner runner = new BatchRunner(storeHelper, coffeeHelper, receiptHelper, RowWriter.forFormat(format, out));
+            runner.run(in, System.err);
+        } catch (IOException e) {
+            System.err.println("The batch could not be completed: " + e.getMessage());
         }
     }
 
@@ -201,39 +408,60 @@ public class App {
                 | (12) Find All Receipts for a given coffeeID          |
                 | (13) Find All Receipts within a given quantity range |
                 | (14) Find All Receipts within a given date range     |
+                | (15) Total Sales by store                            |
+                | (16) Total Sales by coffee                           |
+                | (17) Total Sales by hour, day or month               |
+                | (18) Find Receipt details for a given storeNumber    |
+                | (19) Find Receipt details for a given coffeeID       |
                 +---------------------------------------------------+""";
         System.out.println(menuString);
     }
 
-    private static void printResultRows(List<RowInterface> queryResults) {
+    /**
+     * Prints a query's results as a table. The rows are rendered straight
+     * into a large buffer in front of stdout, which is written in a few
+     * large chunks rather than one synchronized println per row.
+     * Package-private so that the output formatting can be benchmarked.
+     */
+    static void printResultRows(List<RowInterface> queryResults) {
         if (queryResults == null) {
             return;
         }
+        printResultRows(queryResults.iterator());
+    }
+
+    /**
+     * Prints a streamed query's results as a table, as they are read, and closes the Stream
+     */
+    static void printResultRows(Stream<? extends RowInterface> queryResults) {
+        try (queryResults) {
+            printResultRows(queryResults.iterator());
+        }
+    }
 
-        // Print the name of the table beforehand
-        if (!queryResults.isEmpty()) {
-            String tableName;
-            if (queryResults.getFirst() instanceof Store) {
-                tableName = """
-                        +----------------------------------------------------------------+
-                        |                             Store                              |
-                        +----------------------------------------------------------------+""";
-            } else if (queryResults.getFirst() instanceof Coffee) {
-                tableName = """
-                        +----------------------------------------------------------------+
-                        |                             Coffee                             |
-                        +----------------------------------------------------------------+""";
-            } else {
-                tableName = """
-                        +----------------------------------------------------------------+
-                        |                              Receipt                              |
-                        +----------------------------------------------------------------+""";
-            }
-            System.out.println(tableName);
+    private static void printResultRows(Iterator<? extends RowInterface> rows) {
+        // The writer is recreated if System.out has been replaced, as the benchmarks do
+        if (tableWriterTarget != System.out) {
+            tableWriterTarget = System.out;
+            tableOutput = new RowOutput(new OutputStreamWriter(System.out, System.out.charset()));
+            tableWriter = new TableRowWriter(tableOutput);
         }
-        for (RowInterface queryResult : queryResults) {
-            System.out.println(queryResult);
+        boolean printed = false;
+        try {
+            tableWriter.beginResult();
+            while (rows.hasNext()) {
+                tableWriter.writeRow(rows.next());
+            }
+            tableWriter.endResult();
+            tableWriter.flush();
+            printed = true;
+        } catch (IOException e) {
+            System.err.println("The results could not be printed: " + e.getMessage());
+        } finally {
+            if (!printed) {
+                // Otherwise a row that failed part way would be printed in front of the next result
+                tableOutput.discard();
+            }
         }
-        System.out.println("\n");
     }
 }
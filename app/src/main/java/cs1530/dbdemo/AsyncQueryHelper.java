@@ -0,0 +1,196 @@
+/**
+ * Asynchronous counterparts of the Store, Coffee and Receipt finders.
+ * Each call runs the blocking finder on its own virtual thread and
+ * returns a CompletableFuture, so a service can have thousands of
+ * lookups in flight without a platform thread per request.
+ *
+ * Two limits keep the database from being overrun. At most maxConcurrent
+ * queries run at the same time; this should not exceed the connection
+ * pool's maximum size, since H2 pins a virtual thread to its carrier
+ * while it is inside the driver. At most maxPending queries may be
+ * submitted but not yet finished; once that many are outstanding,
+ * callers wait up to submitTimeoutMillis for room before their future
+ * fails with a RejectedExecutionException.
+ *
+ * A query runs within the QueryContext that was open when it was
+ * submitted, so cancelling the context or reaching its deadline also
+ * stops the asynchronous queries submitted under it.
+ */
+
+package cs1530.dbdemo;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+public class AsyncQueryHelper implements AutoCloseable {
+    private final StoreQueryHelper storeHelper;
+    private final CoffeeQueryHelper coffeeHelper;
+    private final ReceiptQueryHelper receiptHelper;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final int maxConcurrent;
+    private final int maxPending;
+    private final Semaphore runningPermits;
+    private final Semaphore pendingPermits;
+    private final long submitTimeoutMillis;
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param storeHelper The helper that Store queries are delegated to
+     * @param coffeeHelper The helper that Coffee queries are delegated to
+     * @param receiptHelper The helper that Receipt queries are delegated to
+     * @param maxConcurrent The maximum number of queries running at the same time
+     * @param maxPending The maximum number of queries submitted but not yet finished
+     * @param submitTimeoutMillis How long a caller waits for room when maxPending queries are outstanding
+     */
+    public AsyncQueryHelper(StoreQueryHelper storeHelper, CoffeeQueryHelper coffeeHelper, ReceiptQueryHelper receiptHelper,
+                            int maxConcurrent, int maxPending, long submitTimeoutMillis) {
+        this.storeHelper = storeHelper;
+        this.coffeeHelper = coffeeHelper;
+        this.receiptHelper = receiptHelper;
+        this.maxConcurrent = maxConcurrent;
+        this.maxPending = maxPending;
+        this.runningPermits = new Semaphore(maxConcurrent, true);
+        this.pendingPermits = new Semaphore(maxPending, true);
+        this.submitTimeoutMillis = submitTimeoutMillis;
+    }
+
+    public CompletableFuture<List<RowInterface>> findAllStores() {
+        return submit(storeHelper::findAll);
+    }
+
+    public CompletableFuture<List<RowInterface>> findStoresByStoreNumber(int storeNumber) {
+        return submit(() -> storeHelper.findByStoreNumber(storeNumber));
+    }
+
+    public CompletableFuture<List<RowInterface>> findStoresByStoreType(String storeType) {
+        return submit(() -> storeHelper.findByStoreType(storeType));
+    }
+
+    public CompletableFuture<List<RowInterface>> findStoresByCityAndState(String city, String state) {
+        return submit(() -> storeHelper.findByCityAndState(city, state));
+    }
+
+    public CompletableFuture<List<RowInterface>> findAllCoffees() {
+        return submit(coffeeHelper::findAll);
+    }
+
+    public CompletableFuture<List<RowInterface>> findCoffeesByName(String name) {
+        return submit(() -> coffeeHelper.findByName(name));
+    }
+
+    public CompletableFuture<List<RowInterface>> findCoffeesByIntensity(int intensity) {
+        return submit(() -> coffeeHelper.findByIntensity(intensity));
+    }
+
+    public CompletableFuture<List<RowInterface>> findCoffeesInPriceRange(BigDecimal lowerBound, BigDecimal upperBound) {
+        return submit(() -> coffeeHelper.findCoffeeInPriceRange(lowerBound, upperBound));
+    }
+
+    public CompletableFuture<List<RowInterface>> findAllReceipts() {
+        return submit(receiptHelper::findAll);
+    }
+
+    public CompletableFuture<List<RowInterface>> findReceiptsByReceiptID(int receiptID) {
+        return submit(() -> receiptHelper.findByReceiptID(receiptID));
+    }
+
+    public CompletableFuture<List<RowInterface>> findReceiptsByStoreNumber(int storeNumber) {
+        return submit(() -> receiptHelper.findByStoreNumber(storeNumber));
+    }
+
+    public CompletableFuture<List<RowInterface>> findReceiptsByCoffeeID(int coffeeID) {
+        return submit(() -> receiptHelper.findByCoffeeID(coffeeID));
+    }
+
+    public CompletableFuture<List<RowInterface>> findReceiptsInQuantityRange(int lowerBound, int upperBound) {
+        return submit(() -> receiptHelper.findReceiptInQuantityRange(lowerBound, upperBound));
+    }
+
+    public CompletableFuture<List<RowInterface>> findReceiptsInDateRange(Date lowerBound, Date upperBound) {
+        return submit(() -> receiptHelper.findReceiptInDateRange(lowerBound, upperBound));
+    }
+
+    /**
+     * @return The number of queries currently running
+     */
+    public int getRunningCount() {
+        return maxConcurrent - runningPermits.availablePermits();
+    }
+
+    /**
+     * @return The number of queries submitted but not yet finished, including running ones
+     */
+    public int getPendingCount() {
+        return maxPending - pendingPermits.availablePermits();
+    }
+
+    /**
+     * @return The number of submissions rejected because too many queries were outstanding
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Stops accepting queries and waits for the outstanding ones to finish
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    /**
+     * Runs a blocking query on a virtual thread once there is room for it
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> query) {
+        try {
+            if (!pendingPermits.tryAcquire(submitTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                return CompletableFuture.failedFuture(new RejectedExecutionException(
+                        "More than " + maxPending + " queries are outstanding"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        // The caller's QueryContext goes with the query, so its deadline and cancellation still apply
+        QueryContext context = QueryContext.current();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    runningPermits.acquire();
+                    try {
+                        future.complete(context == null ? query.get() : context.call(query));
+                    } finally {
+                        runningPermits.release();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    future.completeExceptionally(e);
+                } catch (Throwable e) {
+                    // Errors such as OutOfMemoryError or AssertionError must fail the future too, or it never completes
+                    future.completeExceptionally(e);
+                } finally {
+                    pendingPermits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingPermits.release();
+            rejected.increment();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
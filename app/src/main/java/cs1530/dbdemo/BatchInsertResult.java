@@ -0,0 +1,51 @@
+/**
+ * A helper class describing the outcome of a bulk insert: how many
+ * rows were written, which rows were rejected because they violated
+ * a constraint, and how long the insert took.
+ */
+
+package cs1530.dbdemo;
+
+import java.util.List;
+
+public class BatchInsertResult {
+    private final int insertedCount;
+    private final List<Receipt> rejected;
+    private final long elapsedNanos;
+
+    public BatchInsertResult(int insertedCount, List<Receipt> rejected, long elapsedNanos) {
+        this.insertedCount = insertedCount;
+        this.rejected = rejected;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getInsertedCount() {
+        return insertedCount;
+    }
+
+    /**
+     * @return The rows that were skipped because they violated a constraint,
+     *         such as a foreign key into STORE or COFFEE
+     */
+    public List<Receipt> getRejected() {
+        return rejected;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : insertedCount * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "inserted=" + insertedCount +
+                ", rejected=" + rejected.size() +
+                ", elapsedMillis=" + elapsedNanos / 1_000_000 +
+                ", rowsPerSecond=" + String.format("%.0f", getRowsPerSecond()) +
+                '}';
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * Runs query commands without the interactive menu, for scripted or high
+ * volume use. Each line of the input is one command: a menu option from
+ * 1 to 14 followed by the values the menu would prompt for, separated by
+ * commas. For example
+ *
+ *     4,Pittsburgh,Pennsylvania
+ *     14,2024-10-01,2024-11-30
+ *
+ * Blank lines and lines starting with # are skipped, and a line that
+ * cannot be run is reported and skipped. Results are streamed to a
+ * RowWriter as they are read, and a throughput summary is printed to
+ * stderr at the end so that the output only holds results.
+ */
+
+package cs1530.dbdemo;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class BatchRunner {
+    private final StoreQueryHelper storeHelper;
+    private final CoffeeQueryHelper coffeeHelper;
+    private final ReceiptQueryHelper receiptHelper;
+    private final RowWriter out;
+
+    private long commandCount;
+    private long failedCount;
+    private long rowCount;
+
+    /**
+     * @param storeHelper The helper that Store commands are run with
+     * @param coffeeHelper The helper that Coffee commands are run with
+     * @param receiptHelper The helper that Receipt commands are run with
+     * @param out The writer that results are streamed to
+     */
+    public BatchRunner(StoreQueryHelper storeHelper, CoffeeQueryHelper coffeeHelper, ReceiptQueryHelper receiptHelper,
+                       RowWriter out) {
+        this.storeHelper = storeHelper;
+        this.coffeeHelper = coffeeHelper;
+        this.receiptHelper = receiptHelper;
+        this.out = out;
+    }
+
+    /**
+     * Runs every command in the input back to back, then flushes the
+     * output and prints the throughput summary
+     *
+     * @param in The commands, one per line
+     * @param summary The stream the throughput summary and skipped lines are printed to
+     * @throws IOException If the input cannot be read or the output cannot be written
+     */
+    public void run(BufferedReader in, PrintStream summary) throws IOException {
+        long start = System.nanoTime();
+        String line;
+        int lineNumber = 0;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            commandCount++;
+            try {
+                rowCount += runCommand(line.split(",", -1));
+            } catch (IllegalArgumentException e) {
+                // Also covers NumberFormatException and the IllegalArgumentException thrown by Date.valueOf
+                failedCount++;
+                summary.println("Skipping line " + lineNumber + " (" + line + "): " + e.getMessage());
+            }
+        }
+        out.flush();
+        printSummary(summary, System.nanoTime() - start);
+    }
+
+    public long getCommandCount() {
+        return commandCount;
+    }
+
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Runs one command, numbered as in the interactive menu
+     *
+     * @return The number of rows written
+     */
+    private long runCommand(String[] fields) throws IOException {
+        int option = Integer.parseInt(fields[0].strip());
+        return switch (option) {
+            case 1 -> {
+                requireParameters(fields, 0);
+                yield writeRows(storeHelper.findAll());
+            }
+            case 2 -> {
+                requireParameters(fields, 1);
+                yield writeRows(storeHelper.findByStoreNumber(intParameter(fields, 1)));
+            }
+            case 3 -> {
+                requireParameters(fields, 1);
+                yield writeRows(storeHelper.findByStoreType(fields[1].strip()));
+            }
+            case 4 -> {
+                requireParameters(fields, 2);
+                yield writeRows(storeHelper.findByCityAndState(fields[1].strip(), fields[2].strip()));
+            }
+            case 5 -> {
+                requireParameters(fields, 0);
+                yield writeRows(coffeeHelper.findAll());
+            }
+            case 6 -> {
+                requireParameters(fields, 1);
+                yield writeRows(coffeeHelper.findByName(fields[1].strip()));
+            }
+            case 7 -> {
+                requireParameters(fields, 1);
+                yield writeRows(coffeeHelper.findByIntensity(intParameter(fields, 1)));
+            }
+            case 8 -> {
+                requireParameters(fields, 2);
+                yield writeRows(coffeeHelper.findCoffeeInPriceRange(new BigDecimal(fields[1].strip()),
+                        new BigDecimal(fields[2].strip())));
+            }
+            // The receipt listings can be arbitrarily large, so they are streamed rather than collected
+            case 9 -> {
+                requireParameters(fields, 0);
+                yield writeRows(receiptHelper.streamAll());
+            }
+            case 10 -> {
+                requireParameters(fields, 1);
+                yield writeRows(receiptHelper.findByReceiptID(intParameter(fields, 1)));
+            }
+            case 11 -> {
+                requireParameters(fields, 1);
+                yield writeRows(receiptHelper.findByStoreNumber(intParameter(fields, 1)));
+            }
+            case 12 -> {
+                requireParameters(fields, 1);
+                yield writeRows(receiptHelper.findByCoffeeID(intParameter(fields, 1)));
+            }
+            case 13 -> {
+                requireParameters(fields, 2);
+                yield writeRows(receiptHelper.streamReceiptInQuantityRange(intParameter(fields, 1), intParameter(fields, 2)));
+            }
+            case 14 -> {
+                requireParameters(fields, 2);
+                yield writeRows(receiptHelper.streamReceiptInDateRange(Date.valueOf(fields[1].strip()),
+                        Date.valueOf(fields[2].strip())));
+            }
+            default -> throw new IllegalArgumentException("Unknown option " + option + ", expected 1 to 14");
+        };
+    }
+
+    private long writeRows(List<RowInterface> rows) throws IOException {
+        out.beginResult();
+        for (RowInterface row : rows) {
+            out.writeRow(row);
+        }
+        out.endResult();
+        return rows.size();
+    }
+
+    private long writeRows(Stream<Receipt> rows) throws IOException {
+        out.beginResult();
+        long written = 0;
+        try (rows) {
+            Iterator<Receipt> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                out.writeRow(iterator.next());
+                written++;
+            }
+        }
+        out.endResult();
+        return written;
+    }
+
+    private static void requireParameters(String[] fields, int count) {
+        if (fields.length - 1 != count) {
+            throw new IllegalArgumentException("Expected " + count + " parameters but found " + (fields.length - 1));
+        }
+    }
+
+    private static int intParameter(String[] fields, int index) {
+        return Integer.parseInt(fields[index].strip());
+    }
+
+    private void printSummary(PrintStream summary, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        summary.printf("Ran %d commands (%d skipped) returning %d rows in %.3f s: %.0f rows/s, %.1f commands/s%n",
+                commandCount, failedCount, rowCount, seconds,
+                seconds > 0 ? rowCount / seconds : 0.0,
+                seconds > 0 ? commandCount / seconds : 0.0);
+    }
+}
@@ -9,19 +9,19 @@
 package cs1530.dbdemo;
 
 public class Coffee implements RowInterface {
-    private Integer coffeeID;
+    private int coffeeID;
     private String name;
-    private Integer intensity;
-    private Double price;
+    private int intensity;
+    private double price;
 
-    public Coffee(Integer coffeeID, String name, Integer intensity, Double price) {
+    public Coffee(int coffeeID, String name, int intensity, double price) {
         this.coffeeID = coffeeID;
         this.name = name;
         this.intensity = intensity;
         this.price = price;
     }
 
-    public Integer getCoffeeID() {
+    public int getCoffeeID() {
         return coffeeID;
     }
 
@@ -29,14 +29,22 @@ public class Coffee implements RowInterface {
         return name;
     }
 
-    public Integer getIntensity() {
+    public int getIntensity() {
         return intensity;
     }
 
-    public Double getPrice() {
+    public double getPrice() {
         return price;
     }
 
+    @Override
+    public void visitFields(FieldVisitor visitor) {
+        visitor.visitInt("coffeeID", coffeeID);
+        visitor.visitString("name", name);
+        visitor.visitInt("intensity", intensity);
+        visitor.visitDouble("price", price);
+    }
+
     @Override
     public String toString() {
         return "{" +
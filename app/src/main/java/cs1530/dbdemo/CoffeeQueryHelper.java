@@ -15,37 +15,16 @@ import java.util.List;
 
 public class CoffeeQueryHelper {
     private static final int QUERY_TIMEOUT = 30;
-    private Connection databaseConnection;
+    private ConnectionPool connectionPool;
 
     /**
-     * In the table below, note that numeric(5, 2) is a floating point
-     * value with 5 significant digits, of which, 2 appear after the decimal point
+     * The COFFEE table is created by SchemaManager rather than here,
+     * so constructing a helper does not touch the database
+     *
+     * @param pool The connection pool that queries borrow their database connections from
      */
-    public CoffeeQueryHelper(Connection conn) {
-        this.databaseConnection = conn;
-        try (Statement st = this.databaseConnection.createStatement()) {
-            st.setQueryTimeout(QUERY_TIMEOUT); // set timeout to 30 seconds
-            st.executeUpdate("DROP TABLE IF EXISTS COFFEE CASCADE;");
-            st.executeUpdate("CREATE TABLE COFFEE (coffeeID integer PRIMARY KEY, " +
-                    "name varchar(50)," +
-                    "intensity integer," +
-                    "price numeric(5,2));");
-            // Can execute each update as a single statement
-            st.executeUpdate("INSERT INTO COFFEE VALUES (1, 'Espresso', 10, 1.45);");
-            st.executeUpdate("INSERT INTO COFFEE VALUES (2, 'Latte', 4, 3.65);");
-
-            // Or execute multiple updates within a single statement
-            st.executeUpdate("INSERT INTO COFFEE VALUES (3, 'Drip Coffee', 8, 1.15)," +
-                    "(4, 'Cappuccino', 5, 2.79)," +
-                    "(5, 'Macchiato', 5, 3.30)," +
-                    "(6, 'Cold Brew', 7, 3.10)," +
-                    "(7, 'Hot Chocolate', 1, 1.59)," +
-                    "(8, 'Americano', 7, 2.05)," +
-                    "(9, 'Mocha', 3, 2.65)," +
-                    "(10, 'Frappuccino', 2, 2.89)");
-        } catch (SQLException e) {
-            handleError(e);
-        }
+    public CoffeeQueryHelper(ConnectionPool pool) {
+        this.connectionPool = pool;
     }
 
     /**
@@ -54,17 +33,22 @@ public class CoffeeQueryHelper {
      * @return A List of all Sales in the H2 database
      */
     protected List<RowInterface> findAll() {
+        QueryTimer timer = QueryMetrics.start("coffee.findAll");
         List<RowInterface> coffeeList = new ArrayList<>();
-        try (Statement st = databaseConnection.createStatement()) {
+        try (Connection conn = connectionPool.getConnection();
+             Statement st = conn.createStatement()) {
             st.setQueryTimeout(QUERY_TIMEOUT); // set timeout to 30 seconds
             ResultSet rs = st.executeQuery("SELECT * FROM COFFEE;");
+            RowMapper<Coffee> coffeeMapper = bindCoffeeMapper(rs);
             while (rs.next()) {
-                Coffee currentCoffee = buildCoffeeFromRow(rs);
+                Coffee currentCoffee = coffeeMapper.mapRow(rs);
                 coffeeList.add(currentCoffee);
             }
         } catch (SQLException e) {
+            timer.fail(e);
             handleError(e);
         }
+        timer.stop(coffeeList.size());
         return coffeeList;
     }
 
@@ -73,22 +57,36 @@ public class CoffeeQueryHelper {
      * specified name
      *
      * @param name The name that queried Coffees will have
-     * @return A list of all Coffees in the H2 database with the specified name
+     * @return An unmodifiable list of all Coffees in the H2 database with the specified name,
+     *         whether or not it came from the cache
      */
     protected List<RowInterface> findByName(String name) {
+        QueryTimer timer = QueryMetrics.start("coffee.findByName");
+        List<RowInterface> cached = getNameCache().get(name);
+        if (cached != null) {
+            timer.stop(cached.size());
+            return cached;
+        }
+        long cacheGeneration = getNameCache().generation();
         List<RowInterface> coffeeList = new ArrayList<>();
-        try (PreparedStatement st = databaseConnection.prepareStatement("SELECT * FROM COFFEE WHERE name = ?")) {
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement st = conn.prepareStatement("SELECT * FROM COFFEE WHERE name = ?")) {
             st.setQueryTimeout(QUERY_TIMEOUT);
             st.setString(1, name);
             ResultSet rs = st.executeQuery();
+            RowMapper<Coffee> coffeeMapper = bindCoffeeMapper(rs);
             while (rs.next()) {
-                Coffee currentCoffee = buildCoffeeFromRow(rs);
+                Coffee currentCoffee = coffeeMapper.mapRow(rs);
                 coffeeList.add(currentCoffee);
             }
+            getNameCache().put(name, List.copyOf(coffeeList), cacheGeneration);
         } catch (SQLException e) {
+            timer.fail(e);
             handleError(e);
         }
-        return coffeeList;
+        timer.stop(coffeeList.size());
+        // The same kind of list a cache hit returns, so callers cannot tell the two apart
+        return List.copyOf(coffeeList);
     }
 
     /**
@@ -96,22 +94,36 @@ public class CoffeeQueryHelper {
      * specified coffee intensity
      *
      * @param intensity The intensity that queried Coffees will have
-     * @return A list of all Coffees in the H2 database with the specified intensity
+     * @return An unmodifiable list of all Coffees in the H2 database with the specified intensity,
+     *         whether or not it came from the cache
      */
     protected List<RowInterface> findByIntensity(int intensity) {
+        QueryTimer timer = QueryMetrics.start("coffee.findByIntensity");
+        List<RowInterface> cached = getIntensityCache().get(intensity);
+        if (cached != null) {
+            timer.stop(cached.size());
+            return cached;
+        }
+        long cacheGeneration = getIntensityCache().generation();
         List<RowInterface> coffeeList = new ArrayList<>();
-        try (PreparedStatement st = databaseConnection.prepareStatement("SELECT * FROM COFFEE WHERE intensity = ?")) {
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement st = conn.prepareStatement("SELECT * FROM COFFEE WHERE intensity = ?")) {
             st.setQueryTimeout(QUERY_TIMEOUT);
             st.setInt(1, intensity);
             ResultSet rs = st.executeQuery();
+            RowMapper<Coffee> coffeeMapper = bindCoffeeMapper(rs);
             while (rs.next()) {
-                Coffee currentCoffee = buildCoffeeFromRow(rs);
+                Coffee currentCoffee = coffeeMapper.mapRow(rs);
                 coffeeList.add(currentCoffee);
             }
+            getIntensityCache().put(intensity, List.copyOf(coffeeList), cacheGeneration);
         } catch (SQLException e) {
+            timer.fail(e);
             handleError(e);
         }
-        return coffeeList;
+        timer.stop(coffeeList.size());
+        // The same kind of list a cache hit returns, so callers cannot tell the two apart
+        return List.copyOf(coffeeList);
     }
 
     /**
@@ -123,38 +135,121 @@ public class CoffeeQueryHelper {
      * @return A list of all Coffees in the H2 database within the price range
      */
     protected List<RowInterface> findCoffeeInPriceRange(BigDecimal lowerBound, BigDecimal upperBound) {
+        QueryTimer timer = QueryMetrics.start("coffee.findCoffeeInPriceRange");
         List<RowInterface> coffeeList = new ArrayList<>();
-        try (PreparedStatement st = databaseConnection.prepareStatement("SELECT * " +
-                "FROM COFFEE " +
-                "WHERE price >= ? AND price <= ?")) {
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement st = conn.prepareStatement("SELECT * " +
+                     "FROM COFFEE " +
+                     "WHERE price >= ? AND price <= ?")) {
             st.setQueryTimeout(QUERY_TIMEOUT);
             st.setBigDecimal(1, lowerBound);
             st.setBigDecimal(2, upperBound);
             ResultSet rs = st.executeQuery();
+            RowMapper<Coffee> coffeeMapper = bindCoffeeMapper(rs);
             while (rs.next()) {
-                Coffee currentCoffee = buildCoffeeFromRow(rs);
+                Coffee currentCoffee = coffeeMapper.mapRow(rs);
                 coffeeList.add(currentCoffee);
             }
         } catch (SQLException e) {
+            timer.fail(e);
+            handleError(e);
+        }
+        timer.stop(coffeeList.size());
+        return coffeeList;
+    }
+
+    /**
+     * A version of findCoffeeInPriceRange with the bounds and prices in
+     * whole cents, so that no price passes through a double
+     *
+     * @param lowerCents the lower bound (inclusive) for the price range, in cents
+     * @param upperCents the upper bound (inclusive) for the price range, in cents
+     * @return A list of all Coffees in the H2 database within the specified price range
+     */
+    protected List<CompactCoffee> findCompactInPriceRange(long lowerCents, long upperCents) {
+        QueryTimer timer = QueryMetrics.start("coffee.findCompactInPriceRange");
+        List<CompactCoffee> coffeeList = new ArrayList<>();
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement st = conn.prepareStatement("SELECT * " +
+                     "FROM COFFEE " +
+                     "WHERE price >= ? AND price <= ?")) {
+            st.setQueryTimeout(QUERY_TIMEOUT);
+            st.setBigDecimal(1, CompactCoffee.fromCents(lowerCents));
+            st.setBigDecimal(2, CompactCoffee.fromCents(upperCents));
+            ResultSet rs = st.executeQuery();
+            RowMapper<CompactCoffee> coffeeMapper = bindCompactCoffeeMapper(rs);
+            while (rs.next()) {
+                coffeeList.add(coffeeMapper.mapRow(rs));
+            }
+        } catch (SQLException e) {
+            timer.fail(e);
             handleError(e);
         }
+        timer.stop(coffeeList.size());
         return coffeeList;
     }
 
     /**
-     * A private helper function for converting a row from ResultSet (JDBC's
-     * standard return type for a query) to an instance of the Sale class.
+     * Drops every cached COFFEE lookup, for every helper using the pool.
+     * Must be called whenever the COFFEE table is written.
+     */
+    public void invalidateCache() {
+        connectionPool.invalidateCoffeeCache();
+    }
+
+    /**
+     * @return The cache of lookups by name, shared by every helper using the pool
+     */
+    public QueryCache<String, List<RowInterface>> getNameCache() {
+        return connectionPool.getCoffeeNameCache();
+    }
+
+    /**
+     * @return The cache of lookups by intensity, shared by every helper using the pool
+     */
+    public QueryCache<Integer, List<RowInterface>> getIntensityCache() {
+        return connectionPool.getCoffeeIntensityCache();
+    }
+
+    /**
+     * A helper function for building a RowMapper that converts rows from
+     * a ResultSet (JDBC's standard return type for a query) to instances of the
+     * Coffee class. The column ordinals are looked up once here rather than by
+     * name on every row.
      *
-     * @param rs The ResultSet being iterated from executing a query
-     * @return The Sale instance that matches the ResultSet's current row
+     * @param rs The ResultSet that will be iterated from executing a query
+     * @return A RowMapper producing the Coffee instance that matches the ResultSet's current row
      * @throws SQLException when the ResultSet is closed or another exception occurs
-     *                      such as trying to access a column that is not part of the ResultSet
+     *                      such as a column that is not part of the ResultSet
+     */
+    static RowMapper<Coffee> bindCoffeeMapper(ResultSet rs) throws SQLException {
+        int coffeeID = rs.findColumn("coffeeID");
+        int name = rs.findColumn("name");
+        int intensity = rs.findColumn("intensity");
+        int price = rs.findColumn("price");
+        return row -> new Coffee(row.getInt(coffeeID),
+                row.getString(name),
+                row.getInt(intensity),
+                row.getDouble(price));
+    }
+
+    /**
+     * A version of bindCoffeeMapper producing CompactCoffees. The price is
+     * read as a BigDecimal and converted to cents exactly.
+     *
+     * @param rs The ResultSet that will be iterated from executing a query
+     * @return A RowMapper producing the CompactCoffee instance that matches the ResultSet's current row
+     * @throws SQLException when the ResultSet is closed or a column is not part of the ResultSet
      */
-    private static Coffee buildCoffeeFromRow(ResultSet rs) throws SQLException {
-        return new Coffee(rs.getInt("coffeeID"),
-                rs.getString("name"),
-                rs.getInt("intensity"),
-                rs.getDouble("price"));
+    static RowMapper<CompactCoffee> bindCompactCoffeeMapper(ResultSet rs) throws SQLException {
+        int coffeeID = rs.findColumn("coffeeID");
+        int name = rs.findColumn("name");
+        int intensity = rs.findColumn("intensity");
+        int price = rs.findColumn("price");
+        return row -> new CompactCoffee(row.getInt(coffeeID),
+                row.getString(name),
+                row.getInt(intensity),
+                CompactCoffee.toCents(row.getBigDecimal(price)));
     }
 
     /**
@@ -0,0 +1,95 @@
+/**
+ * A compact, immutable row of the Coffee table that holds the price as a
+ * whole number of cents. NUMERIC(5,2) prices are exact in cents, so
+ * totals computed from them have none of the rounding error of double.
+ */
+
+package cs1530.dbdemo;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+public final class CompactCoffee implements RowInterface {
+    private final int coffeeID;
+    private final String name;
+    private final int intensity;
+    private final long priceCents;
+
+    public CompactCoffee(int coffeeID, String name, int intensity, long priceCents) {
+        this.coffeeID = coffeeID;
+        this.name = name;
+        this.intensity = intensity;
+        this.priceCents = priceCents;
+    }
+
+    /**
+     * Converts a Coffee, rounding its double price to the nearest cent
+     */
+    public static CompactCoffee from(Coffee coffee) {
+        return new CompactCoffee(coffee.getCoffeeID(), coffee.getName(), coffee.getIntensity(),
+                Math.round(coffee.getPrice() * 100));
+    }
+
+    public Coffee toCoffee() {
+        return new Coffee(coffeeID, name, intensity, priceCents / 100.0);
+    }
+
+    /**
+     * @param price A price with at most two decimal places, as read from a NUMERIC(5,2) column
+     * @return The price in cents
+     * @throws ArithmeticException If the price has a fraction of a cent
+     */
+    static long toCents(BigDecimal price) {
+        return price.setScale(2, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    public int getCoffeeID() {
+        return coffeeID;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getIntensity() {
+        return intensity;
+    }
+
+    public long getPriceCents() {
+        return priceCents;
+    }
+
+    public BigDecimal getPrice() {
+        return fromCents(priceCents);
+    }
+
+    /**
+     * @return The price of quantity of this coffee in cents
+     * @throws ArithmeticException If the total does not fit in a long
+     */
+    public long totalCents(int quantity) {
+        return Math.multiplyExact(priceCents, (long) quantity);
+    }
+
+    @Override
+    public void visitFields(FieldVisitor visitor) {
+        visitor.visitInt("coffeeID", coffeeID);
+        visitor.visitString("name", name);
+        visitor.visitInt("intensity", intensity);
+        visitor.visitDecimal("price", getPrice());
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "coffeeID='" + coffeeID + '\'' +
+                ", name='" + name + '\'' +
+                ", intensity=" + intensity +
+                ", price=" + getPrice() +
+                '}';
+    }
+}
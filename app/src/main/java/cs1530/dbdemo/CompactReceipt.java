@@ -0,0 +1,101 @@
+/**
+ * A compact, immutable row of the Receipt table for receipt-heavy
+ * workloads. The timeOfPurchase is held as epoch milliseconds rather than
+ * a Timestamp, so a row is one object of primitive fields instead of a
+ * Receipt plus its Timestamp. With compressed oops that is 40 bytes
+ * rather than 32 for the Receipt and 32 for the Timestamp, about 37% less
+ * retained heap per row.
+ */
+
+package cs1530.dbdemo;
+
+import java.sql.Timestamp;
+
+public final class CompactReceipt implements RowInterface {
+    // Stands in for a null timeOfPurchase
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    private final int receiptID;
+    private final int storeNumber;
+    private final long timeOfPurchaseMillis;
+    private final int coffeeID;
+    private final int quantity;
+
+    /**
+     * @param timeOfPurchaseMillis The time of purchase in epoch milliseconds, or NO_TIME if there is none
+     */
+    public CompactReceipt(int receiptID, int storeNumber, long timeOfPurchaseMillis, int coffeeID, int quantity) {
+        this.receiptID = receiptID;
+        this.storeNumber = storeNumber;
+        this.timeOfPurchaseMillis = timeOfPurchaseMillis;
+        this.coffeeID = coffeeID;
+        this.quantity = quantity;
+    }
+
+    public static CompactReceipt from(Receipt receipt) {
+        Timestamp timeOfPurchase = receipt.getTimeOfPurchase();
+        return new CompactReceipt(receipt.getReceiptId(),
+                receipt.getStoreNumber(),
+                timeOfPurchase == null ? NO_TIME : timeOfPurchase.getTime(),
+                receipt.getCoffeeID(),
+                receipt.getQuantity());
+    }
+
+    public Receipt toReceipt() {
+        return new Receipt(receiptID, storeNumber, getTimeOfPurchase(), coffeeID, quantity);
+    }
+
+    public int getReceiptId() {
+        return receiptID;
+    }
+
+    public int getStoreNumber() {
+        return storeNumber;
+    }
+
+    /**
+     * @return The time of purchase in epoch milliseconds, or NO_TIME if there is none
+     */
+    public long getTimeOfPurchaseMillis() {
+        return timeOfPurchaseMillis;
+    }
+
+    public boolean hasTimeOfPurchase() {
+        return timeOfPurchaseMillis != NO_TIME;
+    }
+
+    /**
+     * @return The time of purchase as a new Timestamp, or null if there is none
+     */
+    public Timestamp getTimeOfPurchase() {
+        return hasTimeOfPurchase() ? new Timestamp(timeOfPurchaseMillis) : null;
+    }
+
+    public int getCoffeeID() {
+        return coffeeID;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    @Override
+    public void visitFields(FieldVisitor visitor) {
+        visitor.visitInt("receiptId", receiptID);
+        visitor.visitInt("storeNumber", storeNumber);
+        visitor.visitTimestamp("timeOfPurchase", getTimeOfPurchase());
+        visitor.visitInt("coffeeID", coffeeID);
+        visitor.visitInt("quantity", quantity);
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "receiptId=" + receiptID +
+                ", storeNumber=" + storeNumber +
+                ", timeOfPurchase=" + getTimeOfPurchase() +
+                ", coffeeID=" + coffeeID +
+                ", quantity=" + quantity +
+                '}';
+    }
+}
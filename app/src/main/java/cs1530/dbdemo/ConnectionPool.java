@@ -0,0 +1,488 @@
+/**
+ * A simple pool of JDBC connections shared by the query helpers.
+ * Instead of every query going through one shared Connection, each
+ * helper method borrows a connection for the duration of a single
+ * query and hands it back by calling close() on it. The physical
+ * connection stays open and is reused by the next borrower.
+ *
+ * Each pooled connection also keeps a StatementCache, so calling
+ * prepareStatement(sql) on a borrowed connection reuses a statement
+ * that was already prepared for the same SQL text.
+ *
+ * The pool also holds the list of receipt partitions in its database and
+ * the caches of STORE and COFFEE lookups, so that every helper created with
+ * the pool shares one copy of them. Code that writes STORE or COFFEE must
+ * call invalidateStoreCache() or invalidateCoffeeCache() on the pool.
+ */
+
+package cs1530.dbdemo;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConnectionPool implements AutoCloseable {
+    private static final int VALIDATION_TIMEOUT = 5;
+    private static final int QUERY_CACHE_MAX_SIZE = 1024;
+    private static final long QUERY_CACHE_TTL_MILLIS = 5 * 60 * 1000;
+
+    private final String url;
+    private final Properties props;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+    private final int statementCacheSize;
+
+    // Idle connections, most recently returned first. Guarded by "this".
+    private final Deque<PooledConnection> idleConnections = new ArrayDeque<>();
+    private int openConnections;
+
+    // One permit per connection that may be borrowed at the same time
+    private final Semaphore permits;
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder borrowTimeouts = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    // Created on first use. Guarded by "this".
+    private volatile ReceiptPartitions receiptPartitions;
+
+    // STORE and COFFEE are small and rarely written, so lookups on them are cached
+    private final QueryCache<Integer, List<RowInterface>> storeNumberCache =
+            new QueryCache<>("store.findByStoreNumber", QUERY_CACHE_MAX_SIZE, QUERY_CACHE_TTL_MILLIS);
+    private final QueryCache<String, List<RowInterface>> coffeeNameCache =
+            new QueryCache<>("coffee.findByName", QUERY_CACHE_MAX_SIZE, QUERY_CACHE_TTL_MILLIS);
+    private final QueryCache<Integer, List<RowInterface>> coffeeIntensityCache =
+            new QueryCache<>("coffee.findByIntensity", QUERY_CACHE_MAX_SIZE, QUERY_CACHE_TTL_MILLIS);
+
+    /**
+     * The constructor for the ConnectionPool class, which opens
+     * minSize connections up front and starts a background thread
+     * that closes connections idle for longer than idleTimeoutMillis
+     *
+     * @param url The JDBC URL of the database
+     * @param props The connection properties such as user and password
+     * @param minSize The number of connections that are kept open even when idle
+     * @param maxSize The maximum number of connections that can be borrowed at once
+     * @param idleTimeoutMillis How long a connection above minSize may stay idle before being closed
+     * @param borrowTimeoutMillis How long getConnection() waits for a free connection
+     * @param statementCacheSize The number of prepared statements cached per connection (0 disables caching)
+     * @throws SQLException when the initial connections cannot be opened
+     */
+    public ConnectionPool(String url, Properties props, int minSize, int maxSize,
+                          long idleTimeoutMillis, long borrowTimeoutMillis, int statementCacheSize) throws SQLException {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.props = props;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        try {
+            for (int i = 0; i < minSize; i++) {
+                PooledConnection pooled = openConnection();
+                synchronized (this) {
+                    idleConnections.addLast(pooled);
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            // The pool is never handed out, so the connections opened so far would leak
+            synchronized (this) {
+                for (PooledConnection pooled : idleConnections) {
+                    discard(pooled);
+                }
+                idleConnections.clear();
+            }
+            throw e;
+        }
+
+        // Started only once the warm-up has succeeded, so a failed constructor leaves no thread behind
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long evictionPeriod = Math.max(1, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdleConnections, evictionPeriod, evictionPeriod, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, waiting up to the borrow timeout
+     * for one to become available. Idle connections are validated before
+     * being handed out, and a new connection is opened when none are idle.
+     * Closing the returned connection gives it back to the pool.
+     *
+     * @return A borrowed connection
+     * @throws SQLException when the pool is closed, the wait times out, or a
+     *                      new connection cannot be opened
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("The connection pool has been closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                borrowTimeouts.increment();
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis
+                        + " ms waiting for a pooled connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled = takeValidIdleConnection();
+            if (pooled == null) {
+                pooled = openConnection();
+            }
+            return pooled.borrow();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes every idle connection and stops the eviction thread.
+     * Connections that are still borrowed are closed once they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        synchronized (this) {
+            for (PooledConnection pooled : idleConnections) {
+                discard(pooled);
+            }
+            idleConnections.clear();
+        }
+    }
+
+    /**
+     * Drops every cached STORE lookup. Must be called whenever the STORE table is written.
+     */
+    public void invalidateStoreCache() {
+        storeNumberCache.invalidateAll();
+    }
+
+    /**
+     * Drops every cached COFFEE lookup. Must be called whenever the COFFEE table is written.
+     */
+    public void invalidateCoffeeCache() {
+        coffeeNameCache.invalidateAll();
+        coffeeIntensityCache.invalidateAll();
+    }
+
+    QueryCache<Integer, List<RowInterface>> getStoreNumberCache() {
+        return storeNumberCache;
+    }
+
+    QueryCache<String, List<RowInterface>> getCoffeeNameCache() {
+        return coffeeNameCache;
+    }
+
+    QueryCache<Integer, List<RowInterface>> getCoffeeIntensityCache() {
+        return coffeeIntensityCache;
+    }
+
+    /**
+     * @return The receipt partitions of the pool's database, shared by every helper using the pool
+     */
+    ReceiptPartitions getReceiptPartitions() {
+        ReceiptPartitions partitions = receiptPartitions;
+        if (partitions == null) {
+            synchronized (this) {
+                if (receiptPartitions == null) {
+                    receiptPartitions = new ReceiptPartitions(this);
+                }
+                partitions = receiptPartitions;
+            }
+        }
+        return partitions;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized int getOpenCount() {
+        return openConnections;
+    }
+
+    public synchronized int getIdleCount() {
+        return idleConnections.size();
+    }
+
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    public double getAverageWaitMillis() {
+        long borrows = borrowCount.sum();
+        return borrows == 0 ? 0.0 : totalWaitNanos.sum() / (borrows * 1_000_000.0);
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    public long getBorrowTimeoutCount() {
+        return borrowTimeouts.sum();
+    }
+
+    public long getValidationFailureCount() {
+        return validationFailures.sum();
+    }
+
+    public long getStatementCacheHitCount() {
+        return statementCacheHits.sum();
+    }
+
+    public long getStatementCacheMissCount() {
+        return statementCacheMisses.sum();
+    }
+
+    public double getStatementCacheHitRate() {
+        long hits = statementCacheHits.sum();
+        long lookups = hits + statementCacheMisses.sum();
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "open=" + getOpenCount() +
+                ", idle=" + getIdleCount() +
+                ", active=" + getActiveCount() +
+                ", borrows=" + getBorrowCount() +
+                ", avgWaitMillis=" + String.format("%.3f", getAverageWaitMillis()) +
+                ", maxWaitMillis=" + String.format("%.3f", getMaxWaitMillis()) +
+                ", timeouts=" + getBorrowTimeoutCount() +
+                ", validationFailures=" + getValidationFailureCount() +
+                ", statementCacheHits=" + getStatementCacheHitCount() +
+                ", statementCacheMisses=" + getStatementCacheMissCount() +
+                '}';
+    }
+
+    private void recordWait(long waitNanos) {
+        borrowCount.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    /**
+     * Pops idle connections until one passes validation, discarding any
+     * that have gone bad in the meantime
+     *
+     * @return A validated idle connection, or null when none are idle
+     */
+    private PooledConnection takeValidIdleConnection() {
+        while (true) {
+            PooledConnection pooled;
+            synchronized (this) {
+                pooled = idleConnections.pollFirst();
+            }
+            if (pooled == null) {
+                return null;
+            }
+            if (pooled.isValid()) {
+                return pooled;
+            }
+            validationFailures.increment();
+            synchronized (this) {
+                discard(pooled);
+            }
+        }
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, props);
+        synchronized (this) {
+            openConnections++;
+        }
+        return new PooledConnection(physical);
+    }
+
+    /**
+     * Called when a borrowed connection is closed. Any transaction left
+     * open by the borrower is rolled back before the connection is reused.
+     */
+    private void release(PooledConnection pooled) {
+        try {
+            boolean reusable = !closed && pooled.reset();
+            synchronized (this) {
+                if (reusable) {
+                    pooled.lastReturnedNanos = System.nanoTime();
+                    idleConnections.addFirst(pooled);
+                } else {
+                    discard(pooled);
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private synchronized void evictIdleConnections() {
+        long now = System.nanoTime();
+        long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        // The oldest idle connections sit at the end of the deque
+        Iterator<PooledConnection> oldestFirst = idleConnections.descendingIterator();
+        while (oldestFirst.hasNext() && openConnections > minSize) {
+            PooledConnection pooled = oldestFirst.next();
+            if (now - pooled.lastReturnedNanos < idleTimeoutNanos) {
+                break;
+            }
+            oldestFirst.remove();
+            discard(pooled);
+        }
+    }
+
+    // Must be called while holding the lock on "this"
+    private void discard(PooledConnection pooled) {
+        openConnections--;
+        pooled.statementCache.clear();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            // The connection is being thrown away, so there is nothing left to do
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool. Each borrow hands out a
+     * fresh proxy so that a caller holding on to an old handle cannot use
+     * the connection after it has been returned.
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private final StatementCache statementCache;
+        private long lastReturnedNanos = System.nanoTime();
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statementCache = new StatementCache(physical, statementCacheSize,
+                    statementCacheHits, statementCacheMisses);
+        }
+
+        private Connection borrow() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new BorrowedHandle());
+        }
+
+        private boolean isValid() {
+            try {
+                return physical.isValid(VALIDATION_TIMEOUT);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private boolean reset() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                // H2 applies a statement's query timeout to the whole session, so a
+                // timeout cut short by a QueryContext would carry over to the next borrower
+                try (Statement st = physical.createStatement()) {
+                    st.setQueryTimeout(0);
+                }
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private final class BorrowedHandle implements InvocationHandler {
+            private boolean returned;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!returned) {
+                            returned = true;
+                            release(PooledConnection.this);
+                        }
+                        return null;
+                    case "isClosed":
+                        return returned || physical.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Pooled" + physical;
+                    default:
+                        break;
+                }
+                if (returned) {
+                    throw new SQLException("The connection has already been returned to the pool");
+                }
+                if (method.getName().equals("prepareStatement") && args.length == 1) {
+                    return StatementTracker.wrap(statementCache.prepareStatement((String) args[0]), (String) args[0]);
+                }
+                Object result;
+                try {
+                    result = method.invoke(physical, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                // Statements are tracked for QueryContext deadlines and the slow-query log
+                if (method.getName().equals("prepareStatement")) {
+                    return StatementTracker.wrap((PreparedStatement) result, (String) args[0]);
+                }
+                if (method.getName().equals("createStatement")) {
+                    return StatementTracker.wrap((Statement) result, null);
+                }
+                return result;
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Writes rows as comma-separated values following RFC 4180. Each query's
+ * results start with a header line naming the row's fields, since the
+ * results of consecutive queries may be different row classes. Values
+ * containing a comma, quote or line break are quoted, and nulls are
+ * written as empty values.
+ */
+
+package cs1530.dbdemo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+public class CsvRowWriter implements RowWriter, FieldVisitor {
+    private final RowOutput out;
+    private boolean headerPending = true;
+    private boolean writingHeader;
+    private boolean firstField;
+
+    /**
+     * @param out The output the rows are rendered into
+     */
+    public CsvRowWriter(RowOutput out) {
+        this.out = out;
+    }
+
+    @Override
+    public void beginResult() {
+        headerPending = true;
+    }
+
+    @Override
+    public void writeRow(RowInterface row) throws IOException {
+        try {
+            if (headerPending) {
+                writingHeader = true;
+                writeLine(row);
+                writingHeader = false;
+                headerPending = false;
+            }
+            writeLine(row);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void writeLine(RowInterface row) {
+        firstField = true;
+        row.visitFields(this);
+        out.append('\n');
+    }
+
+    @Override
+    public void visitInt(String name, long value) {
+        if (startField(name)) {
+            out.append(value);
+        }
+    }
+
+    @Override
+    public void visitDouble(String name, double value) {
+        if (startField(name)) {
+            out.append(value);
+        }
+    }
+
+    @Override
+    public void visitDecimal(String name, BigDecimal value) {
+        if (startField(name) && value != null) {
+            out.append(value.toPlainString());
+        }
+    }
+
+    @Override
+    public void visitString(String name, String value) {
+        if (startField(name) && value != null) {
+            appendQuoted(value);
+        }
+    }
+
+    @Override
+    public void visitTimestamp(String name, Timestamp value) {
+        if (startField(name) && value != null) {
+            out.append(value);
+        }
+    }
+
+    /**
+     * Writes the separator before a field and, on a header line, the field's name
+     *
+     * @return true if the field's value should be written
+     */
+    private boolean startField(String name) {
+        if (!firstField) {
+            out.append(',');
+        }
+        firstField = false;
+        if (writingHeader) {
+            appendQuoted(name);
+            return false;
+        }
+        return true;
+    }
+
+    private void appendQuoted(String value) {
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * A helper class for representing a Receipt joined with the Coffee and
+ * Store it references, so that a receipt can be shown with its coffee's
+ * name and price and its store's city without looking either up.
+ * Only the columns needed for that are carried, and numbers are kept as
+ * primitives.
+ */
+
+package cs1530.dbdemo;
+
+import java.sql.Timestamp;
+
+public class EnrichedReceipt implements RowInterface {
+    private final int receiptID;
+    private final int storeNumber;
+    private final String storeCity;
+    private final Timestamp timeOfPurchase;
+    private final int coffeeID;
+    private final String coffeeName;
+    private final double price;
+    private final int quantity;
+
+    public EnrichedReceipt(int receiptID, int storeNumber, String storeCity, Timestamp timeOfPurchase,
+                           int coffeeID, String coffeeName, double price, int quantity) {
+        this.receiptID = receiptID;
+        this.storeNumber = storeNumber;
+        this.storeCity = storeCity;
+        this.timeOfPurchase = timeOfPurchase;
+        this.coffeeID = coffeeID;
+        this.coffeeName = coffeeName;
+        this.price = price;
+        this.quantity = quantity;
+    }
+
+    public int getReceiptId() {
+        return receiptID;
+    }
+
+    public int getStoreNumber() {
+        return storeNumber;
+    }
+
+    public String getStoreCity() {
+        return storeCity;
+    }
+
+    public Timestamp getTimeOfPurchase() {
+        return timeOfPurchase;
+    }
+
+    public int getCoffeeID() {
+        return coffeeID;
+    }
+
+    public String getCoffeeName() {
+        return coffeeName;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    @Override
+    public void visitFields(FieldVisitor visitor) {
+        visitor.visitInt("receiptId", receiptID);
+        visitor.visitInt("storeNumber", storeNumber);
+        visitor.visitString("storeCity", storeCity);
+        visitor.visitTimestamp("timeOfPurchase", timeOfPurchase);
+        visitor.visitInt("coffeeID", coffeeID);
+        visitor.visitString("coffeeName", coffeeName);
+        visitor.visitDouble("price", price);
+        visitor.visitInt("quantity", quantity);
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "receiptId=" + receiptID +
+                ", storeNumber=" + storeNumber +
+                ", storeCity='" + storeCity + '\'' +
+                ", timeOfPurchase=" + timeOfPurchase +
+                ", coffeeID=" + coffeeID +
+                ", coffeeName='" + coffeeName + '\'' +
+                ", price=" + price +
+                ", quantity=" + quantity +
+                '}';
+    }
+}
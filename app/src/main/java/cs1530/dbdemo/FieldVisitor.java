@@ -0,0 +1,23 @@
+/**
+ * An interface for visiting the fields of a row in column order, so that
+ * rows can be written in formats such as CSV or JSON without knowing
+ * which row class they are. Numbers are passed as primitives so that
+ * writers do not need to box them.
+ */
+
+package cs1530.dbdemo;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+public interface FieldVisitor {
+    void visitInt(String name, long value);
+
+    void visitDouble(String name, double value);
+
+    void visitDecimal(String name, BigDecimal value);
+
+    void visitString(String name, String value);
+
+    void visitTimestamp(String name, Timestamp value);
+}
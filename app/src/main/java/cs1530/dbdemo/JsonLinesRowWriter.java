@@ -0,0 +1,125 @@
+/**
+ * Writes rows as JSON Lines: one JSON object per row, keyed by the row's
+ * field names, on its own line. Timestamps are written as strings in JDBC
+ * escape format, and doubles that JSON cannot represent as null.
+ */
+
+package cs1530.dbdemo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+public class JsonLinesRowWriter implements RowWriter, FieldVisitor {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final RowOutput out;
+    private boolean firstField;
+
+    /**
+     * @param out The output the rows are rendered into
+     */
+    public JsonLinesRowWriter(RowOutput out) {
+        this.out = out;
+    }
+
+    @Override
+    public void beginResult() {
+        // Every line names its own fields, so results need no separator
+    }
+
+    @Override
+    public void writeRow(RowInterface row) throws IOException {
+        try {
+            firstField = true;
+            out.append('{');
+            row.visitFields(this);
+            out.append('}').append('\n');
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void visitInt(String name, long value) {
+        startField(name);
+        out.append(value);
+    }
+
+    @Override
+    public void visitDouble(String name, double value) {
+        startField(name);
+        if (Double.isFinite(value)) {
+            out.append(value);
+        } else {
+            out.append("null");
+        }
+    }
+
+    @Override
+    public void visitDecimal(String name, BigDecimal value) {
+        startField(name);
+        if (value == null) {
+            out.append("null");
+        } else {
+            out.append(value.toPlainString());
+        }
+    }
+
+    @Override
+    public void visitString(String name, String value) {
+        startField(name);
+        appendString(value);
+    }
+
+    @Override
+    public void visitTimestamp(String name, Timestamp value) {
+        startField(name);
+        if (value == null) {
+            out.append("null");
+        } else {
+            out.append('"').append(value).append('"');
+        }
+    }
+
+    private void startField(String name) {
+        if (!firstField) {
+            out.append(',');
+        }
+        firstField = false;
+        appendString(name);
+        out.append(':');
+    }
+
+    private void appendString(String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append('\\').append('"');
+                case '\\' -> out.append('\\').append('\\');
+                case '\n' -> out.append('\\').append('n');
+                case '\r' -> out.append('\\').append('r');
+                case '\t' -> out.append('\\').append('t');
+                default -> {
+                    if (c < 0x20) {
+                        out.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * A helper class for the outcome of a multi-key lookup: the rows that
+ * were found, in the order their keys were requested, the keys that
+ * matched no row, and how many statements the lookup took.
+ *
+ * If the lookup failed part way, the rows read before the failure are
+ * kept but no keys are reported missing, since it is not known which
+ * of them exist.
+ */
+
+package cs1530.dbdemo;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class MultiGetResult {
+    private final List<RowInterface> rows;
+    private final List<Integer> missingKeys;
+    private final int statementCount;
+    private final boolean failed;
+
+    public MultiGetResult(List<RowInterface> rows, List<Integer> missingKeys, int statementCount, boolean failed) {
+        this.rows = rows;
+        this.missingKeys = missingKeys;
+        this.statementCount = statementCount;
+        this.failed = failed;
+    }
+
+    /**
+     * Puts the rows that were found back into the order of the requested
+     * keys. A key requested more than once has its row repeated, and is
+     * reported once if it is missing.
+     *
+     * @param keys The keys in the order they were requested
+     * @param found The rows that were found, by key
+     * @param statementCount The number of statements the lookup ran
+     * @param failed Whether the lookup failed before every key was looked up
+     */
+    static MultiGetResult inKeyOrder(int[] keys, Map<Integer, ? extends RowInterface> found, int statementCount,
+                                     boolean failed) {
+        List<RowInterface> rows = new ArrayList<>(found.size());
+        List<Integer> missingKeys = new ArrayList<>();
+        Set<Integer> reported = new HashSet<>();
+        for (int key : keys) {
+            RowInterface row = found.get(key);
+            if (row != null) {
+                rows.add(row);
+            } else if (!failed && reported.add(key)) {
+                missingKeys.add(key);
+            }
+        }
+        return new MultiGetResult(rows, missingKeys, statementCount, failed);
+    }
+
+    /**
+     * @return The keys from index from, up to chunkSize of them, boxed for Connection.createArrayOf
+     */
+    static Integer[] chunk(int[] keys, int from, int chunkSize) {
+        Integer[] chunk = new Integer[Math.min(chunkSize, keys.length - from)];
+        for (int i = 0; i < chunk.length; i++) {
+            chunk[i] = keys[from + i];
+        }
+        return chunk;
+    }
+
+    public List<RowInterface> getRows() {
+        return rows;
+    }
+
+    /**
+     * @return The requested keys that matched no row, in the order they were requested
+     */
+    public List<Integer> getMissingKeys() {
+        return missingKeys;
+    }
+
+    public boolean hasMissingKeys() {
+        return !missingKeys.isEmpty();
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    /**
+     * @return true if the lookup failed with an error, in which case the rows may be incomplete
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * A small read-through cache for query results on tables that are read far
+ * more often than they are written, such as STORE and COFFEE. Entries are
+ * evicted least-recently-used once the cache is full, and expire after a
+ * fixed time-to-live. Any code that writes to the cached table must call
+ * invalidateAll() so that stale rows are not served.
+ *
+ * @param <K> The type of the query parameter used as the cache key
+ * @param <V> The type of the cached query result
+ */
+
+package cs1530.dbdemo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class QueryCache<K, V> {
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+
+    // Guarded by "this"
+    private final LinkedHashMap<K, CacheEntry<V>> entries;
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * @param name A name for the cache used when printing its statistics
+     * @param maxSize The maximum number of cached results
+     * @param ttlMillis How long a cached result may be served before it is reloaded
+     */
+    public QueryCache(String name, int maxSize, long ttlMillis) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                return size() > QueryCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param key The query parameter
+     * @return The cached result, or null when it is missing or has expired
+     */
+    public synchronized V get(K key) {
+        CacheEntry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (System.nanoTime() - entry.loadedAtNanos > ttlNanos) {
+            entries.remove(key);
+            expirations.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * Returns a token to pass to put() once a query has been run. If the cache
+     * is invalidated while the query is running, the result will not be cached.
+     *
+     * @return The current invalidation generation
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Caches a query result unless the cache was invalidated after the query started
+     *
+     * @param key The query parameter
+     * @param value The query result
+     * @param startGeneration The value of generation() taken before the query ran
+     */
+    public synchronized void put(K key, V value, long startGeneration) {
+        if (startGeneration == generation) {
+            entries.put(key, new CacheEntry<>(value, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Drops every cached result. Must be called after the cached table is written.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        generation++;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "name='" + name + '\'' +
+                ", size=" + size() +
+                ", hits=" + getHitCount() +
+                ", misses=" + getMissCount() +
+                ", expirations=" + getExpirationCount() +
+                ", hitRate=" + String.format("%.3f", getHitRate()) +
+                '}';
+    }
+
+    private static final class CacheEntry<V> {
+        private final V value;
+        private final long loadedAtNanos;
+
+        private CacheEntry(V value, long loadedAtNanos) {
+            this.value = value;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * A deadline and cancellation scope for the queries a caller runs. While
+ * a context is open on a thread, every statement prepared through the
+ * connection pool on that thread has its query timeout cut to the time
+ * left before the deadline, and fails without running once the deadline
+ * has passed. Another thread can call cancel() to stop the context's
+ * running statements with Statement.cancel().
+ *
+ *     try (QueryContext context = QueryContext.open(Duration.ofSeconds(2))) {
+ *         List<RowInterface> rows = receiptHelper.findAll();
+ *     }
+ *
+ * The helpers report a failed query through handleError and return an
+ * empty result, so callers can check isCancelled() or isExpired() to tell
+ * an empty result from a stopped one.
+ */
+
+package cs1530.dbdemo;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+public final class QueryContext implements AutoCloseable {
+    // SQLState used by H2 when a statement times out or is cancelled
+    private static final String QUERY_CANCELED_STATE = "57014";
+    private static final ThreadLocal<QueryContext> CURRENT = new ThreadLocal<>();
+
+    private final boolean hasDeadline;
+    private final long deadlineNanos;
+    private final Set<Statement> openStatements = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+    // The context that was current on the opening thread before this one, restored by close()
+    private final QueryContext previous;
+
+    private QueryContext(boolean hasDeadline, long deadlineNanos) {
+        this.hasDeadline = hasDeadline;
+        this.deadlineNanos = deadlineNanos;
+        this.previous = CURRENT.get();
+        CURRENT.set(this);
+    }
+
+    /**
+     * Opens a context on the current thread whose queries must finish within the timeout
+     *
+     * @param timeout The time from now that the context's queries must finish by
+     * @return The context, which must be closed on the same thread
+     */
+    public static QueryContext open(Duration timeout) {
+        return new QueryContext(true, System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * Opens a context on the current thread that has no deadline but can be cancelled
+     *
+     * @return The context, which must be closed on the same thread
+     */
+    public static QueryContext open() {
+        return new QueryContext(false, 0);
+    }
+
+    /**
+     * @return The context open on the current thread, or null if there is none
+     */
+    static QueryContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs a query on the current thread within this context, such as on the
+     * thread an asynchronous query was handed to
+     *
+     * @param query The query to run
+     * @return The query's result
+     */
+    public <T> T call(Supplier<T> query) {
+        QueryContext outer = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return query.get();
+        } finally {
+            CURRENT.set(outer);
+        }
+    }
+
+    /**
+     * Stops the context's running statements and fails any it runs later.
+     * May be called from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Statement statement : openStatements) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                // The statement has finished or been closed, so there is nothing to stop
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isExpired() {
+        return hasDeadline && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * @return The milliseconds left before the deadline, or Long.MAX_VALUE if there is none
+     */
+    public long getRemainingMillis() {
+        return hasDeadline ? Math.max(0, (deadlineNanos - System.nanoTime()) / 1_000_000) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Restores the context that was open before this one
+     */
+    @Override
+    public void close() {
+        if (CURRENT.get() == this) {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * The query timeout a statement should run with: the timeout it asked
+     * for, cut to the whole seconds left before the deadline and rounded up
+     *
+     * @param requestedSeconds The timeout set on the statement, where 0 means none
+     * @throws SQLTimeoutException If the context has been cancelled or its deadline has passed
+     */
+    int timeoutSeconds(int requestedSeconds) throws SQLException {
+        if (cancelled) {
+            throw new SQLTimeoutException("The query was cancelled", QUERY_CANCELED_STATE);
+        }
+        if (!hasDeadline) {
+            return requestedSeconds;
+        }
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        if (remainingNanos <= 0) {
+            throw new SQLTimeoutException("The query deadline has passed", QUERY_CANCELED_STATE);
+        }
+        int remainingSeconds = (int) Math.min(Integer.MAX_VALUE, (remainingNanos + 999_999_999) / 1_000_000_000);
+        return requestedSeconds == 0 ? remainingSeconds : Math.min(requestedSeconds, remainingSeconds);
+    }
+
+    void track(Statement statement) {
+        openStatements.add(statement);
+    }
+
+    void untrack(Statement statement) {
+        openStatements.remove(statement);
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * A registry of QueryStats for every named query run by the helpers.
+ * Each query's statistics are published as a JMX MBean under
+ * "cs1530.dbdemo:type=QueryStats,name=<query name>" the first time the
+ * query runs, and can also be written out as text periodically.
+ */
+
+package cs1530.dbdemo;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public final class QueryMetrics {
+    private static final String JMX_DOMAIN = "cs1530.dbdemo";
+    private static final Map<String, QueryStats> STATS = new ConcurrentSkipListMap<>();
+    private static final Map<String, Boolean> REGISTERED = new ConcurrentHashMap<>();
+
+    private QueryMetrics() {
+    }
+
+    /**
+     * Starts timing one execution of a named query
+     *
+     * @param queryName The name of the query, such as "receipt.findAll"
+     * @return A timer to stop once the query has finished
+     */
+    public static QueryTimer start(String queryName) {
+        return new QueryTimer(statsFor(queryName));
+    }
+
+    /**
+     * @param queryName The name of the query
+     * @return The statistics of the query, created and registered with JMX if needed
+     */
+    public static QueryStats statsFor(String queryName) {
+        QueryStats stats = STATS.get(queryName);
+        if (stats == null) {
+            stats = STATS.computeIfAbsent(queryName, QueryStats::new);
+            registerMBean(stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Writes one line of statistics per query that has run
+     *
+     * @param out The stream to write to
+     */
+    public static void dump(PrintStream out) {
+        out.println("Query statistics (latencies in microseconds):");
+        for (QueryStats stats : STATS.values()) {
+            out.println("  " + stats);
+        }
+    }
+
+    /**
+     * Writes the statistics of every query at a fixed rate on a daemon thread
+     *
+     * @param out The stream to write to
+     * @param periodMillis The time between dumps
+     * @return The scheduled dump, which can be cancelled to stop it
+     */
+    public static ScheduledFuture<?> startPeriodicDump(PrintStream out, long periodMillis) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "query-metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        return scheduler.scheduleAtFixedRate(() -> dump(out), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static void registerMBean(QueryStats stats) {
+        if (REGISTERED.putIfAbsent(stats.getQueryName(), Boolean.TRUE) != null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(JMX_DOMAIN + ":type=QueryStats,name=" + ObjectName.quote(stats.getQueryName()));
+            if (!server.isRegistered(name)) {
+                server.registerMBean(stats, name);
+            }
+        } catch (JMException e) {
+            System.err.println("Unable to register JMX statistics for " + stats.getQueryName() + ": " + e.getMessage());
+        }
+    }
+}
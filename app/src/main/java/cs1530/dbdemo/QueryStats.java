@@ -0,0 +1,178 @@
+/**
+ * Latency and row-count statistics for one named query, such as
+ * "receipt.findByStoreNumber". Latencies are kept in a fixed-size
+ * log-linear histogram, so recording is lock-free and constant time and
+ * percentiles are accurate to within about 12%.
+ */
+
+package cs1530.dbdemo;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class QueryStats implements QueryStatsMBean {
+    // Each power of two is split into 2^SUB_BUCKET_BITS linear sub-buckets
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = 64 * SUB_BUCKETS;
+
+    private final String queryName;
+    private final AtomicLongArray latencyBuckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder queryCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder rowCount = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public QueryStats(String queryName) {
+        this.queryName = queryName;
+    }
+
+    /**
+     * Records one execution of the query
+     *
+     * @param micros How long the query took in microseconds
+     * @param rows The number of rows the query returned or wrote
+     * @param failed Whether the query failed with an error
+     * @param timedOut Whether the failure was a timeout or cancellation
+     */
+    public void record(long micros, long rows, boolean failed, boolean timedOut) {
+        latencyBuckets.incrementAndGet(bucketIndex(micros));
+        queryCount.increment();
+        rowCount.add(rows);
+        totalMicros.add(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+        if (failed) {
+            errorCount.increment();
+        }
+        if (timedOut) {
+            timeoutCount.increment();
+        }
+    }
+
+    @Override
+    public String getQueryName() {
+        return queryName;
+    }
+
+    @Override
+    public long getQueryCount() {
+        return queryCount.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    @Override
+    public long getRowCount() {
+        return rowCount.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long count = queryCount.sum();
+        return count == 0 ? 0.0 : (double) totalMicros.sum() / count;
+    }
+
+    @Override
+    public long getP50Micros() {
+        return percentile(0.50);
+    }
+
+    @Override
+    public long getP95Micros() {
+        return percentile(0.95);
+    }
+
+    @Override
+    public long getP99Micros() {
+        return percentile(0.99);
+    }
+
+    @Override
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            latencyBuckets.set(i, 0);
+        }
+        queryCount.reset();
+        errorCount.reset();
+        timeoutCount.reset();
+        rowCount.reset();
+        totalMicros.reset();
+        maxMicros.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "query='" + queryName + '\'' +
+                ", count=" + getQueryCount() +
+                ", errors=" + getErrorCount() +
+                ", timeouts=" + getTimeoutCount() +
+                ", rows=" + getRowCount() +
+                ", p50Micros=" + getP50Micros() +
+                ", p95Micros=" + getP95Micros() +
+                ", p99Micros=" + getP99Micros() +
+                ", maxMicros=" + getMaxMicros() +
+                '}';
+    }
+
+    /**
+     * @param fraction The percentile as a fraction, such as 0.95
+     * @return The upper bound of the histogram bucket holding the percentile,
+     *         capped at the largest recorded value
+     */
+    private long percentile(double fraction) {
+        long total = 0;
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = latencyBuckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) Math.max(0, value);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowerBound = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ * The JMX management interface for the statistics of one named query.
+ * Latencies are reported in microseconds.
+ */
+
+package cs1530.dbdemo;
+
+public interface QueryStatsMBean {
+    String getQueryName();
+
+    long getQueryCount();
+
+    long getErrorCount();
+
+    long getTimeoutCount();
+
+    long getRowCount();
+
+    double getMeanMicros();
+
+    long getP50Micros();
+
+    long getP95Micros();
+
+    long getP99Micros();
+
+    long getMaxMicros();
+
+    void reset();
+}
@@ -0,0 +1,130 @@
+/**
+ * Times a single execution of a named query. Call fail() when the query
+ * throws, and stop() once it has finished with the number of rows it
+ * returned or wrote.
+ *
+ * While the slow-query log is on, a timer is the current query of the
+ * thread that started it until it stops or is detached, and collects the
+ * statements run on that thread in the meantime so that a slow query can
+ * be logged with them. The thread only holds its current timer weakly, so
+ * a timer that is never stopped, such as one whose query threw, is not
+ * kept alive by the thread.
+ */
+
+package cs1530.dbdemo;
+
+import java.lang.ref.WeakReference;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class QueryTimer {
+    // SQLState used by H2 when a statement times out or is cancelled
+    private static final String QUERY_CANCELED_STATE = "57014";
+    // The most statements kept for the slow-query log, so that a query running many does not grow without bound
+    private static final int MAX_TRACED_STATEMENTS = 10;
+    private static final ThreadLocal<WeakReference<QueryTimer>> CURRENT = new ThreadLocal<>();
+
+    private final QueryStats stats;
+    private final long startNanos = System.nanoTime();
+    private boolean failed;
+    private boolean timedOut;
+    private boolean stopped;
+    // Only set while the slow-query log is on
+    private final List<String> statements;
+    private final WeakReference<QueryTimer> self;
+    private final WeakReference<QueryTimer> previous;
+    private int untracedStatements;
+
+    QueryTimer(QueryStats stats) {
+        this.stats = stats;
+        if (SlowQueryLog.isEnabled()) {
+            statements = new ArrayList<>();
+            self = new WeakReference<>(this);
+            previous = CURRENT.get();
+            CURRENT.set(self);
+        } else {
+            statements = null;
+            self = null;
+            previous = null;
+        }
+    }
+
+    /**
+     * @return The current query of this thread, or null if there is none
+     */
+    static QueryTimer current() {
+        WeakReference<QueryTimer> current = CURRENT.get();
+        QueryTimer timer = current == null ? null : current.get();
+        if (timer == null && current != null) {
+            CURRENT.remove();
+        }
+        return timer;
+    }
+
+    /**
+     * Adds a statement to the current query of this thread, if there is one
+     *
+     * @param statement The statement as described by SlowQueryLog.describe
+     */
+    static void trace(String statement) {
+        QueryTimer timer = current();
+        if (timer == null || timer.statements == null) {
+            return;
+        }
+        if (timer.statements.size() < MAX_TRACED_STATEMENTS) {
+            timer.statements.add(statement);
+        } else {
+            timer.untracedStatements++;
+        }
+    }
+
+    /**
+     * Marks the query as failed, and as timed out when the error was a
+     * timeout or cancellation
+     *
+     * @param err The error the query failed with
+     */
+    public void fail(SQLException err) {
+        failed = true;
+        timedOut = err instanceof SQLTimeoutException || QUERY_CANCELED_STATE.equals(err.getSQLState());
+    }
+
+    /**
+     * Stops collecting the statements run on this thread, for a query whose
+     * rows are read after it returns, so that the statements of the caller's
+     * other queries are not traced as this query's. The timer keeps timing
+     * until it is stopped.
+     */
+    void detach() {
+        if (self != null && CURRENT.get() == self) {
+            if (previous == null || previous.get() == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Records the query's latency and row count. Only the first call has an effect.
+     *
+     * @param rows The number of rows the query returned or wrote
+     */
+    public void stop(long rows) {
+        if (stopped) {
+            return;
+        }
+        stopped = true;
+        long micros = (System.nanoTime() - startNanos) / 1000;
+        stats.record(micros, rows, failed, timedOut);
+        if (statements != null) {
+            detach();
+            if (untracedStatements > 0) {
+                statements.add("... and " + untracedStatements + " more statements");
+            }
+            SlowQueryLog.record(stats.getQueryName(), statements, micros, rows, failed);
+        }
+    }
+}
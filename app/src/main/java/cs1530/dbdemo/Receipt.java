@@ -11,13 +11,13 @@ package cs1530.dbdemo;
 import java.sql.Timestamp;
 
 public class Receipt implements RowInterface {
-    private Integer receiptID;
-    private Integer storeNumber;
+    private int receiptID;
+    private int storeNumber;
     private Timestamp timeOfPurchase;
-    private Integer coffeeID;
-    private Integer quantity;
+    private int coffeeID;
+    private int quantity;
 
-    public Receipt(Integer receiptId, Integer storeNumber, Timestamp timeOfPurchase, Integer coffeeID, Integer quantity) {
+    public Receipt(int receiptId, int storeNumber, Timestamp timeOfPurchase, int coffeeID, int quantity) {
         this.receiptID = receiptId;
         this.storeNumber = storeNumber;
         this.timeOfPurchase = timeOfPurchase;
@@ -25,11 +25,11 @@ public class Receipt implements RowInterface {
         this.quantity = quantity;
     }
 
-    public Integer getReceiptId() {
+    public int getReceiptId() {
         return receiptID;
     }
 
-    public Integer getStoreNumber() {
+    public int getStoreNumber() {
         return storeNumber;
     }
 
@@ -37,14 +37,23 @@ public class Receipt implements RowInterface {
         return timeOfPurchase;
     }
 
-    public Integer getCoffeeID() {
+    public int getCoffeeID() {
         return coffeeID;
     }
 
-    public Integer getQuantity() {
+    public int getQuantity() {
         return quantity;
     }
 
+    @Override
+    public void visitFields(FieldVisitor visitor) {
+        visitor.visitInt("receiptId", receiptID);
+        visitor.visitInt("storeNumber", storeNumber);
+        visitor.visitTimestamp("timeOfPurchase", timeOfPurchase);
+        visitor.visitInt("coffeeID", coffeeID);
+        visitor.visitInt("quantity", quantity);
+    }
+
     @Override
     public String toString() {
         return "{" +
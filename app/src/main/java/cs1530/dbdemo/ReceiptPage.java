@@ -0,0 +1,31 @@
+/**
+ * A helper class for one page of a paginated Receipt query. The
+ * next page token is opaque to callers: pass it back to the same query
+ * to fetch the following page. It is null on the last page.
+ */
+
+package cs1530.dbdemo;
+
+import java.util.List;
+
+public class ReceiptPage {
+    private final List<RowInterface> rows;
+    private final String nextPageToken;
+
+    public ReceiptPage(List<RowInterface> rows, String nextPageToken) {
+        this.rows = rows;
+        this.nextPageToken = nextPageToken;
+    }
+
+    public List<RowInterface> getRows() {
+        return rows;
+    }
+
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public boolean hasNextPage() {
+        return nextPageToken != null;
+    }
+}
@@ -0,0 +1,424 @@
+/**
+ * The monthly partitions that receipts are stored in. Each month with
+ * receipts has its own RECEIPT_Pyyyymm table with the columns, indexes and
+ * foreign keys that RECEIPT used to have, and RECEIPT_PDEFAULT holds the
+ * receipts without a timeOfPurchase. RECEIPT itself is a UNION ALL view
+ * over every partition, so queries that do not filter on the date still
+ * see every row, while date range queries and inserts address only the
+ * partitions they need.
+ *
+ * The partitions' primary keys only keep receiptID unique within a month,
+ * so RECEIPT_KEY maps every receiptID to the month of its partition.
+ * Inserting the key first rejects a receiptID that already exists in
+ * another month, and lets a lookup by receiptID go to a single partition.
+ *
+ * Creating or dropping a partition is DDL, which commits the current
+ * transaction in H2, so writers must create the partitions they need
+ * before they start writing. They then hold the lock returned by
+ * lockForWrite until their rows are committed, which keeps a partition
+ * from being dropped between the check that it exists and the commit.
+ *
+ * Each ConnectionPool owns the one instance for its database, which every
+ * helper and manager shares, so a partition created or dropped through
+ * one of them is seen by all of the others.
+ */
+
+package cs1530.dbdemo;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+final class ReceiptPartitions {
+    static final String DEFAULT_PARTITION = "RECEIPT_PDEFAULT";
+    // The partitionMonth recorded in RECEIPT_KEY for receipts in the default partition
+    static final int DEFAULT_MONTH_KEY = 0;
+    static final String PARTITION_PREFIX = "RECEIPT_P";
+    private static final DateTimeFormatter MONTH_SUFFIX = DateTimeFormatter.ofPattern("uuuuMM");
+    private static final String MONTH_KEY_SQL = "CAST(EXTRACT(YEAR FROM timeOfPurchase) * 100 + " +
+            "EXTRACT(MONTH FROM timeOfPurchase) AS INTEGER)";
+    private static final int QUERY_TIMEOUT = 30;
+
+    private final ConnectionPool connectionPool;
+    // The months that have a partition, oldest first. Loaded on first use,
+    // reloaded from INFORMATION_SCHEMA before a partition is created or
+    // dropped, and replaced with a new set afterwards.
+    private volatile NavigableSet<YearMonth> months;
+    // Shared by writers while their rows are uncommitted and exclusive while a partition is dropped
+    private final ReentrantReadWriteLock writeLock = new ReentrantReadWriteLock();
+
+    /**
+     * Use ConnectionPool.getReceiptPartitions rather than creating another
+     * instance, which would keep its own copy of the partition list
+     *
+     * @param pool The connection pool used to look up the existing partitions
+     */
+    ReceiptPartitions(ConnectionPool pool) {
+        this.connectionPool = pool;
+    }
+
+    /**
+     * @return The month whose partition holds a receipt with this timeOfPurchase,
+     *         or null for the default partition
+     */
+    static YearMonth monthOf(Timestamp timeOfPurchase) {
+        return timeOfPurchase == null ? null : YearMonth.from(timeOfPurchase.toLocalDateTime());
+    }
+
+    /**
+     * @param month The month of the partition, or null for the default partition
+     */
+    static String tableName(YearMonth month) {
+        return month == null ? DEFAULT_PARTITION : PARTITION_PREFIX + MONTH_SUFFIX.format(month);
+    }
+
+    /**
+     * @return The month encoded as yyyymm, as stored in RECEIPT_KEY.partitionMonth
+     */
+    static int monthKey(YearMonth month) {
+        return month == null ? DEFAULT_MONTH_KEY : month.getYear() * 100 + month.getMonthValue();
+    }
+
+    static YearMonth monthOfKey(int monthKey) {
+        return monthKey == DEFAULT_MONTH_KEY ? null : YearMonth.of(monthKey / 100, monthKey % 100);
+    }
+
+    /**
+     * @return The months that have a partition, oldest first
+     * @throws SQLException If the partitions could not be looked up
+     */
+    NavigableSet<YearMonth> getMonths() throws SQLException {
+        NavigableSet<YearMonth> current = months;
+        if (current == null) {
+            synchronized (this) {
+                if (months == null) {
+                    try (Connection conn = connectionPool.getConnection();
+                         Statement st = conn.createStatement()) {
+                        st.setQueryTimeout(QUERY_TIMEOUT);
+                        months = loadMonths(st);
+                    }
+                }
+                current = months;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Forgets the loaded partition list, so that it is read again on next
+     * use. Called after partitions are changed without this class, such as
+     * by a schema migration.
+     */
+    synchronized void invalidate() {
+        months = null;
+    }
+
+    /**
+     * @return The table names of the default partition and then every monthly partition, oldest first
+     * @throws SQLException If the partitions could not be looked up
+     */
+    List<String> allTables() throws SQLException {
+        List<String> tables = new ArrayList<>();
+        tables.add(DEFAULT_PARTITION);
+        for (YearMonth month : getMonths()) {
+            tables.add(tableName(month));
+        }
+        return tables;
+    }
+
+    /**
+     * Finds the partitions that can hold receipts within a date range. Months
+     * without a partition have no receipts and are left out.
+     *
+     * @param lowerBound the lower bound (inclusive) for the date range
+     * @param upperBound the upper bound (inclusive) for the date range
+     * @return The partitions' table names, oldest first
+     * @throws SQLException If the partitions could not be looked up
+     */
+    List<String> overlapping(Date lowerBound, Date upperBound) throws SQLException {
+        YearMonth first = YearMonth.from(lowerBound.toLocalDate());
+        YearMonth last = YearMonth.from(upperBound.toLocalDate());
+        List<String> tables = new ArrayList<>();
+        if (first.isAfter(last)) {
+            return tables;
+        }
+        for (YearMonth month : getMonths().subSet(first, true, last, true)) {
+            tables.add(tableName(month));
+        }
+        return tables;
+    }
+
+    /**
+     * Creates the partitions for any of the months that do not have one yet.
+     * This commits the connection's current transaction if a partition is created.
+     *
+     * @param conn The connection to run the DDL on
+     * @param needed The months to create partitions for; null entries are ignored
+     * @throws SQLException If a partition could not be created
+     */
+    void ensure(Connection conn, Collection<YearMonth> needed) throws SQLException {
+        if (covers(getMonths(), needed)) {
+            return;
+        }
+        synchronized (this) {
+            try (Statement st = conn.createStatement()) {
+                st.setQueryTimeout(QUERY_TIMEOUT);
+                // The view is rebuilt from the partitions that exist now, not from a list that may be stale
+                NavigableSet<YearMonth> updated = new TreeSet<>(loadMonths(st));
+                for (YearMonth month : needed) {
+                    if (month != null && updated.add(month)) {
+                        createPartition(st, month);
+                    }
+                }
+                createView(st, updated);
+                months = Collections.unmodifiableNavigableSet(updated);
+            }
+        }
+    }
+
+    /**
+     * Creates the partitions for the months like ensure, and then locks
+     * them against drop. The caller writes its rows, commits, and then
+     * unlocks the returned lock. Writers do not block each other.
+     *
+     * @param conn The connection to run the DDL on
+     * @param needed The months that will be written to; null entries are ignored
+     * @return The lock to release once the rows are committed or rolled back
+     * @throws SQLException If a partition could not be created
+     */
+    Lock lockForWrite(Connection conn, Collection<YearMonth> needed) throws SQLException {
+        Lock lock = writeLock.readLock();
+        while (true) {
+            ensure(conn, needed);
+            lock.lock();
+            NavigableSet<YearMonth> current = months;
+            if (current != null && covers(current, needed)) {
+                return lock;
+            }
+            // A partition was dropped between ensure and the lock, so it is created again
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops a month's partition along with its receipts and their daily
+     * sales totals. The receipts' keys and totals are deleted first in one
+     * transaction, which commits the connection's current transaction too.
+     * The partition is then removed from the RECEIPT view, so that readers
+     * never see a dropped table, and dropped.
+     *
+     * DDL cannot be rolled back, so if the view or the table cannot be
+     * dropped the partition is left with no keys or totals. Dropping the
+     * month again finishes the job, since the partition list is reloaded
+     * from the database and the deletes find nothing left to delete.
+     *
+     * @return false if the month has no partition
+     * @throws SQLException If the partition could not be dropped
+     */
+    synchronized boolean drop(Connection conn, YearMonth month) throws SQLException {
+        // Waits for writers that may be adding rows, keys or totals for the month to commit
+        writeLock.writeLock().lock();
+        try (Statement st = conn.createStatement()) {
+            st.setQueryTimeout(QUERY_TIMEOUT);
+            NavigableSet<YearMonth> updated = new TreeSet<>(loadMonths(st));
+            if (!updated.remove(month)) {
+                months = Collections.unmodifiableNavigableSet(updated);
+                return false;
+            }
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                st.executeUpdate("DELETE FROM RECEIPT_KEY WHERE partitionMonth = " + monthKey(month));
+                SalesRollup.removeMonth(st, month);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+            createView(st, updated);
+            months = Collections.unmodifiableNavigableSet(updated);
+            st.executeUpdate("DROP TABLE " + tableName(month));
+        } finally {
+            writeLock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Writes a month's partition to a compressed SQL script that can be
+     * replayed with RUNSCRIPT, and then drops it
+     *
+     * @param scriptFile The file to write the script to
+     * @return false if the month has no partition
+     * @throws SQLException If the script could not be written, in which case the partition is kept
+     */
+    synchronized boolean archive(Connection conn, YearMonth month, String scriptFile) throws SQLException {
+        if (!getMonths().contains(month)) {
+            return false;
+        }
+        try (Statement st = conn.createStatement()) {
+            // SCRIPT does not accept parameters, so the file name is quoted as a literal
+            st.execute("SCRIPT TO '" + scriptFile.replace("'", "''") + "' COMPRESSION DEFLATE TABLE " + tableName(month));
+        }
+        return drop(conn, month);
+    }
+
+    /**
+     * Migrates RECEIPT from a single table to monthly partitions behind a
+     * view. Rows are merged into the partitions on their receiptID, so the
+     * migration can be re-run if it fails part way.
+     *
+     * @param st A statement on the connection running the migration
+     * @throws SQLException If the migration fails
+     */
+    static void partitionReceiptTable(Statement st) throws SQLException {
+        st.executeUpdate("CREATE TABLE IF NOT EXISTS RECEIPT_KEY (receiptID integer PRIMARY KEY, " +
+                "partitionMonth integer NOT NULL);");
+        st.executeUpdate("CREATE INDEX IF NOT EXISTS RECEIPT_KEY_MONTH_IDX ON RECEIPT_KEY (partitionMonth);");
+        createPartition(st, null);
+        if (isBaseTable(st, "RECEIPT")) {
+            List<YearMonth> existing = new ArrayList<>();
+            try (ResultSet rs = st.executeQuery("SELECT DISTINCT " + MONTH_KEY_SQL + " FROM RECEIPT " +
+                    "WHERE timeOfPurchase IS NOT NULL;")) {
+                while (rs.next()) {
+                    existing.add(monthOfKey(rs.getInt(1)));
+                }
+            }
+            for (YearMonth month : existing) {
+                createPartition(st, month);
+                st.executeUpdate("MERGE INTO " + tableName(month) + " KEY (receiptID) " +
+                        "SELECT * FROM RECEIPT WHERE " + monthCondition(month) + ";");
+            }
+            st.executeUpdate("MERGE INTO " + DEFAULT_PARTITION + " KEY (receiptID) " +
+                    "SELECT * FROM RECEIPT WHERE timeOfPurchase IS NULL;");
+            st.executeUpdate("MERGE INTO RECEIPT_KEY KEY (receiptID) " +
+                    "SELECT receiptID, COALESCE(" + MONTH_KEY_SQL + ", " + DEFAULT_MONTH_KEY + ") FROM RECEIPT;");
+            st.executeUpdate("DROP TABLE RECEIPT;");
+        }
+        createView(st, loadMonths(st));
+    }
+
+    /**
+     * Creates a partition with the same indexes and foreign keys as the
+     * original RECEIPT table. The index and constraint names are prefixed
+     * with the partition's table name since they must be unique in the schema.
+     */
+    private static void createPartition(Statement st, YearMonth month) throws SQLException {
+        String table = tableName(month);
+        String check = month == null ? "timeOfPurchase IS NULL" : monthCondition(month);
+        st.executeUpdate("CREATE TABLE IF NOT EXISTS " + table + " (receiptID integer PRIMARY KEY, " +
+                "storeNumber integer," +
+                "timeOfPurchase timestamp," +
+                "coffeeID integer," +
+                "quantity integer," +
+                "CONSTRAINT " + table + "_MONTH_CHECK CHECK (" + check + "));");
+        createIndexes(st, table);
+    }
+
+    /**
+     * Creates a partition's secondary indexes and then its foreign keys.
+     * Bulk loads drop them with dropIndexes first and recreate them here once
+     * the rows are in, which builds each index in one pass instead of row by
+     * row and checks each foreign key with one join.
+     *
+     * @param table The partition's table name
+     */
+    static void createIndexes(Statement st, String table) throws SQLException {
+        // The indexes are created before the foreign keys so that H2 reuses them instead of adding its own
+        st.executeUpdate("CREATE INDEX IF NOT EXISTS " + table + "_STORE_TIME_IDX ON " + table + " (storeNumber, timeOfPurchase);");
+        st.executeUpdate("CREATE INDEX IF NOT EXISTS " + table + "_COFFEE_IDX ON " + table + " (coffeeID);");
+        st.executeUpdate("CREATE INDEX IF NOT EXISTS " + table + "_QUANTITY_IDX ON " + table + " (quantity);");
+        st.executeUpdate("CREATE INDEX IF NOT EXISTS " + table + "_TIME_IDX ON " + table + " (timeOfPurchase, receiptID);");
+        st.executeUpdate("ALTER TABLE " + table + " ADD CONSTRAINT IF NOT EXISTS " + table + "_STORE_FK " +
+                "FOREIGN KEY (storeNumber) REFERENCES STORE(storeNumber);");
+        st.executeUpdate("ALTER TABLE " + table + " ADD CONSTRAINT IF NOT EXISTS " + table + "_COFFEE_FK " +
+                "FOREIGN KEY (coffeeID) REFERENCES COFFEE(coffeeID);");
+    }
+
+    /**
+     * Drops the foreign keys and indexes created by createIndexes, leaving
+     * only the primary key. The foreign keys go first since they use the indexes.
+     *
+     * @param table The partition's table name
+     */
+    static void dropIndexes(Statement st, String table) throws SQLException {
+        st.executeUpdate("ALTER TABLE " + table + " DROP CONSTRAINT IF EXISTS " + table + "_STORE_FK;");
+        st.executeUpdate("ALTER TABLE " + table + " DROP CONSTRAINT IF EXISTS " + table + "_COFFEE_FK;");
+        for (String index : List.of("_STORE_TIME_IDX", "_COFFEE_IDX", "_QUANTITY_IDX", "_TIME_IDX")) {
+            st.executeUpdate("DROP INDEX IF EXISTS " + table + index + ";");
+        }
+    }
+
+    /**
+     * Joins one copy of the select per partition with UNION ALL. The select
+     * names its table with %s.
+     */
+    static String unionOf(List<String> partitionTables, String select) {
+        StringBuilder sql = new StringBuilder();
+        for (String partition : partitionTables) {
+            if (!sql.isEmpty()) {
+                sql.append(" UNION ALL ");
+            }
+            sql.append(String.format(select, partition));
+        }
+        return sql.toString();
+    }
+
+    private static void createView(Statement st, Collection<YearMonth> partitionMonths) throws SQLException {
+        StringBuilder view = new StringBuilder("CREATE OR REPLACE VIEW RECEIPT AS SELECT * FROM " + DEFAULT_PARTITION);
+        for (YearMonth month : partitionMonths) {
+            view.append(" UNION ALL SELECT * FROM ").append(tableName(month));
+        }
+        st.executeUpdate(view.append(';').toString());
+    }
+
+    private static boolean covers(NavigableSet<YearMonth> existing, Collection<YearMonth> needed) {
+        for (YearMonth month : needed) {
+            if (month != null && !existing.contains(month)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String monthCondition(YearMonth month) {
+        return "timeOfPurchase >= TIMESTAMP '" + month.atDay(1) + " 00:00:00' " +
+                "AND timeOfPurchase < TIMESTAMP '" + month.plusMonths(1).atDay(1) + " 00:00:00'";
+    }
+
+    private static NavigableSet<YearMonth> loadMonths(Statement st) throws SQLException {
+        NavigableSet<YearMonth> loaded = new TreeSet<>();
+        try (ResultSet rs = st.executeQuery("SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES " +
+                "WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_TYPE = 'BASE TABLE' AND TABLE_NAME LIKE 'RECEIPT\\_P%';")) {
+            while (rs.next()) {
+                String table = rs.getString(1);
+                if (!table.equals(DEFAULT_PARTITION)) {
+                    loaded.add(YearMonth.parse(table.substring(PARTITION_PREFIX.length()), MONTH_SUFFIX));
+                }
+            }
+        }
+        return Collections.unmodifiableNavigableSet(loaded);
+    }
+
+    private static boolean isBaseTable(Statement st, String table) throws SQLException {
+        try (ResultSet rs = st.executeQuery("SELECT TABLE_TYPE FROM INFORMATION_SCHEMA.TABLES " +
+                "WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME = '" + table + "';")) {
+            return rs.next() && "BASE TABLE".equals(rs.getString(1));
+        }
+    }
+}
@@ -8,45 +8,60 @@
 
 package cs1530.dbdemo;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class ReceiptQueryHelper {
     private static final int QUERY_TIMEOUT = 30;
-    private Connection databaseConnection;
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int MULTI_GET_CHUNK_SIZE = 1000;
+    private static final String INTEGRITY_VIOLATION_CLASS = "23";
+    private static final String ALL_PAGE_KIND = "all";
+    private static final String DATE_RANGE_PAGE_KIND = "dateRange";
+    // Larger page sizes are cut to this, so one page cannot pull in a whole table
+    static final int MAX_PAGE_SIZE = 10_000;
+    // The columns of a receipt joined with its coffee and store, selected from the table named by %s
+    private static final String ENRICHED_SELECT = "SELECT r.receiptID, r.storeNumber, s.city AS storeCity, r.timeOfPurchase, " +
+            "r.coffeeID, c.name AS coffeeName, c.price, r.quantity " +
+            "FROM %s r JOIN COFFEE c ON r.coffeeID = c.coffeeID JOIN STORE s ON r.storeNumber = s.storeNumber";
+    // The date range query run against each overlapping partition
+    private static final String DATE_RANGE_SELECT = "SELECT * FROM %s WHERE timeOfPurchase >= ? AND timeOfPurchase <= ?";
+    private ConnectionPool connectionPool;
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+    private int batchSize = DEFAULT_BATCH_SIZE;
 
     /**
-     * In the table below, note that timestamp is both a date and time.
+     * The RECEIPT view and its monthly partitions are created by SchemaManager
+     * rather than here, so constructing a helper does not touch the database
+     *
+     * @param pool The connection pool that queries and inserts borrow their database connections from
      */
-    public ReceiptQueryHelper(Connection conn) {
-        this.databaseConnection = conn;
-        try (Statement st = this.databaseConnection.createStatement()) {
-            st.setQueryTimeout(QUERY_TIMEOUT); // set timeout to 30 seconds
-            st.executeUpdate("DROP TABLE IF EXISTS RECEIPT CASCADE;");
-            st.executeUpdate("CREATE TABLE RECEIPT (receiptID integer PRIMARY KEY, " +
-                    "storeNumber integer," +
-                    "timeOfPurchase timestamp," +
-                    "coffeeID integer," +
-                    "quantity integer," +
-                    "CONSTRAINT RECEIPT_STORE_FK FOREIGN KEY (storeNumber) REFERENCES STORE(storeNumber)," +
-                    "CONSTRAINT RECEIPT_COFFEE_FK FOREIGN KEY (coffeeID) REFERENCES COFFEE(coffeeID));");
-            // Can execute each update as a single statement
-            st.executeUpdate("INSERT INTO RECEIPT VALUES (1, 1, '2024-11-01 10:00:00', 1, 2);");
-            st.executeUpdate("INSERT INTO RECEIPT VALUES (2, 1, '2024-11-02 10:15:00', 1, 3);");
+    public ReceiptQueryHelper(ConnectionPool pool) {
+        this.connectionPool = pool;
+    }
 
-            // Or execute multiple updates within a single statement
-            st.executeUpdate("INSERT INTO RECEIPT VALUES (3, 2, '2024-10-28 09:30:40', 2, 1)," +
-                    "(4, 3, '2024-10-29 11:15:00', 3, 3)," +
-                    "(5, 4, '2024-10-28 08:20:15', 4, 2)," +
-                    "(6, 5, '2024-10-29 09:30:40', 5, 2)," +
-                    "(7, 6, '2024-11-02 12:40:00', 6, 5)," +
-                    "(8, 2, '2024-10-21 09:20:20', 7, 1)," +
-                    "(9, 9, '2024-10-19 11:11:11', 9, 3)," +
-                    "(10, 10, '2024-11-03 06:45:00', 10, 4);");
-        } catch (SQLException e) {
-            handleError(e);
-        }
+    /**
+     * @return The partition list shared by every helper using the pool
+     */
+    private ReceiptPartitions partitions() {
+        return connectionPool.getReceiptPartitions();
     }
 
     /**
@@ -55,17 +70,22 @@ public class ReceiptQueryHelper {
      * @return A List of all Receipts in the H2 database
      */
     protected List<RowInterface> findAll() {
+        QueryTimer timer = QueryMetrics.start("receipt.findAll");
         List<RowInterface> receiptList = new ArrayList<>();
-        try (Statement st = databaseConnection.createStatement()) {
+        try (Connection conn = connectionPool.getConnection();
+             Statement st = conn.createStatement()) {
             st.setQueryTimeout(QUERY_TIMEOUT); // set timeout to 30 seconds
             ResultSet rs = st.executeQuery("SELECT * FROM RECEIPT;");
+            RowMapper<Receipt> receiptMapper = bindReceiptMapper(rs);
             while (rs.next()) {
-                Receipt currentReceipt = buildReceiptFromRow(rs);
+                Receipt currentReceipt = receiptMapper.mapRow(rs);
                 receiptList.add(currentReceipt);
             }
         } catch (SQLException e) {
+            timer.fail(e);
             handleError(e);
         }
+        timer.stop(receiptList.size());
         return receiptList;
     }
 
@@ -77,21 +97,105 @@ public class ReceiptQueryHelper {
      * @return A list of all Receipts in the H2 database with the specified storeNumber
      */
     protected List<RowInterface> findByReceiptID(int receiptID) {
+        QueryTimer timer = QueryMetrics.start("receipt.findByReceiptID");
         List<RowInterface> receiptList = new ArrayList<>();
-        try (PreparedStatement st = databaseConnection.prepareStatement("SELECT * FROM RECEIPT WHERE receiptID = ?")) {
-            st.setQueryTimeout(QUERY_TIMEOUT);
-            st.setInt(1, receiptID);
-            ResultSet rs = st.executeQuery();
-            while (rs.next()) {
-                Receipt currentReceipt = buildReceiptFromRow(rs);
-                receiptList.add(currentReceipt);
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement keySt = conn.prepareStatement("SELECT partitionMonth FROM RECEIPT_KEY WHERE receiptID = ?")) {
+            keySt.setQueryTimeout(QUERY_TIMEOUT);
+            keySt.setInt(1, receiptID);
+            ResultSet keys = keySt.executeQuery();
+            // RECEIPT_KEY says which partition holds the receipt, so only that partition is read
+            if (keys.next()) {
+                String partition = ReceiptPartitions.tableName(ReceiptPartitions.monthOfKey(keys.getInt(1)));
+                try (PreparedStatement st = conn.prepareStatement("SELECT * FROM " + partition + " WHERE receiptID = ?")) {
+                    st.setQueryTimeout(QUERY_TIMEOUT);
+                    st.setInt(1, receiptID);
+                    ResultSet rs = st.executeQuery();
+                    RowMapper<Receipt> receiptMapper = bindReceiptMapper(rs);
+                    while (rs.next()) {
+                        Receipt currentReceipt = receiptMapper.mapRow(rs);
+                        receiptList.add(currentReceipt);
+                    }
+                }
             }
         } catch (SQLException e) {
+            timer.fail(e);
             handleError(e);
         }
+        timer.stop(receiptList.size());
         return receiptList;
     }
 
+    /**
+     * A helper function for querying the Receipts with any of the specified
+     * receiptIDs. The keys are looked up in RECEIPT_KEY and then read from
+     * their partitions MULTI_GET_CHUNK_SIZE at a time, so a large lookup
+     * takes a few statements rather than one per key.
+     *
+     * @param receiptIDs The receiptIDs to look up, which may contain duplicates
+     * @return The Receipts found, in the order of receiptIDs, and the receiptIDs that were not found
+     */
+    protected MultiGetResult findByReceiptIDs(int[] receiptIDs) {
+        QueryTimer timer = QueryMetrics.start("receipt.findByReceiptIDs");
+        Map<Integer, Receipt> found = new HashMap<>();
+        int statementCount = 0;
+        boolean failed = false;
+        int[] distinct = Arrays.stream(receiptIDs).distinct().toArray();
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement keySt = conn.prepareStatement(
+                     "SELECT receiptID, partitionMonth FROM RECEIPT_KEY WHERE receiptID = ANY(?)")) {
+            keySt.setQueryTimeout(QUERY_TIMEOUT);
+            Map<Integer, List<Integer>> idsByPartition = new TreeMap<>();
+            for (int from = 0; from < distinct.length; from += MULTI_GET_CHUNK_SIZE) {
+                keySt.setArray(1, conn.createArrayOf("INTEGER", MultiGetResult.chunk(distinct, from, MULTI_GET_CHUNK_SIZE)));
+                ResultSet keys = keySt.executeQuery();
+                statementCount++;
+                while (keys.next()) {
+                    idsByPartition.computeIfAbsent(keys.getInt(2), month -> new ArrayList<>()).add(keys.getInt(1));
+                }
+            }
+            statementCount += readPartitions(conn, idsByPartition, found);
+        } catch (SQLException e) {
+            failed = true;
+            timer.fail(e);
+            handleError(e);
+        }
+        timer.stop(found.size());
+        return MultiGetResult.inKeyOrder(receiptIDs, found, statementCount, failed);
+    }
+
+    /**
+     * Reads receipts by receiptID from the partitions RECEIPT_KEY placed
+     * them in. Each partition is only read for its own receipts,
+     * MULTI_GET_CHUNK_SIZE at a time.
+     *
+     * @param idsByPartition The receiptIDs to read, by RECEIPT_KEY.partitionMonth
+     * @param found The map the receipts are added to by receiptID
+     * @return The number of statements executed
+     */
+    private static int readPartitions(Connection conn, Map<Integer, List<Integer>> idsByPartition,
+                                      Map<Integer, Receipt> found) throws SQLException {
+        int statementCount = 0;
+        for (Map.Entry<Integer, List<Integer>> entry : idsByPartition.entrySet()) {
+            String partition = ReceiptPartitions.tableName(ReceiptPartitions.monthOfKey(entry.getKey()));
+            int[] ids = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+            try (PreparedStatement st = conn.prepareStatement("SELECT * FROM " + partition + " WHERE receiptID = ANY(?)")) {
+                st.setQueryTimeout(QUERY_TIMEOUT);
+                for (int from = 0; from < ids.length; from += MULTI_GET_CHUNK_SIZE) {
+                    st.setArray(1, conn.createArrayOf("INTEGER", MultiGetResult.chunk(ids, from, MULTI_GET_CHUNK_SIZE)));
+                    ResultSet rs = st.executeQuery();
+                    statementCount++;
+                    RowMapper<Receipt> receiptMapper = bindReceiptMapper(rs);
+                    while (rs.next()) {
+                        Receipt currentReceipt = receiptMapper.mapRow(rs);
+                        found.put(currentReceipt.getReceiptId(), currentReceipt);
+                    }
+                }
+            }
+        }
+        return statementCount;
+    }
+
     /**
      * A helper function for querying the Receipts with the specified storeNumber
      *
@@ -99,18 +203,23 @@ public class ReceiptQueryHelper {
      * @return A list of all Receipts in the H2 database with the specified storeNumber
      */
     protected List<RowInterface> findByStoreNumber(int storeNumber) {
+        QueryTimer timer = QueryMetrics.start("receipt.findByStoreNumber");
         List<RowInterface> receiptList = new ArrayList<>();
-        try (PreparedStatement st = databaseConnection.prepareStatement("SELECT * FROM RECEIPT WHERE storeNumber = ?")) {
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement st = conn.prepareStatement("SELECT * FROM RECEIPT WHERE storeNumber = ?")) {
             st.setQueryTimeout(QUERY_TIMEOUT);
             st.setInt(1, storeNumber);
             ResultSet rs = st.executeQuery();
+            RowMapper<Receipt> receiptMapper = bindReceiptMapper(rs);
             while (rs.next()) {
-                Receipt currentReceipt = buildReceiptFromRow(rs);
+                Receipt currentReceipt = receiptMapper.mapRow(rs);
                 receiptList.add(currentReceipt);
             }
         } catch (SQLException e) {
+            timer.fail(e);
             handleError(e);
         }
+        timer.stop(receiptList.size());
         return receiptList;
     }
 
@@ -121,18 +230,23 @@ public class ReceiptQueryHelper {
      * @return A list of all Receipts in the H2 database with the specified coffeeID
      */
     protected List<RowInterface> findByCoffeeID(int coffeeID) {
+        QueryTimer timer = QueryMetrics.start("receipt.findByCoffeeID");
         List<RowInterface> receiptList = new ArrayList<>();
-        try (PreparedStatement st = databaseConnection.prepareStatement("SELECT * FROM RECEIPT WHERE coffeeID = ?")) {
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement st = conn.prepareStatement("SELECT * FROM RECEIPT WHERE coffeeID = ?")) {
             st.setQueryTimeout(QUERY_TIMEOUT);
             st.setInt(1, coffeeID);
             ResultSet rs = st.executeQuery();
+            RowMapper<Receipt> receiptMapper = bindReceiptMapper(rs);
             while (rs.next()) {
-                Receipt currentReceipt = buildReceiptFromRow(rs);
+                Receipt currentReceipt = receiptMapper.mapRow(rs);
                 receiptList.add(currentReceipt);
             }
         } catch (SQLException e) {
+            timer.fail(e);
             handleError(e);
         }
+        timer.stop(receiptList.size());
         return receiptList;
     }
 
@@ -145,21 +259,26 @@ public class ReceiptQueryHelper {
      * @return A list of all Receipts in the H2 database within the specified quantity range
      */
     protected List<RowInterface> findReceiptInQuantityRange(int lowerBound, int upperBound) {
+        QueryTimer timer = QueryMetrics.start("receipt.findReceiptInQuantityRange");
         List<RowInterface> receiptList = new ArrayList<>();
-        try (PreparedStatement st = databaseConnection.prepareStatement("SELECT * " +
-                                                                            "FROM RECEIPT " +
-                                                                            "WHERE quantity >= ? AND quantity <= ?")) {
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement st = conn.prepareStatement("SELECT * " +
+                     "FROM RECEIPT " +
+                     "WHERE quantity >= ? AND quantity <= ?")) {
             st.setQueryTimeout(QUERY_TIMEOUT);
             st.setInt(1, lowerBound);
             st.setInt(2, upperBound);
             ResultSet rs = st.executeQuery();
+            RowMapper<Receipt> receiptMapper = bindReceiptMapper(rs);
             while (rs.next()) {
-                Receipt currentReceipt = buildReceiptFromRow(rs);
+                Receipt currentReceipt = receiptMapper.mapRow(rs);
                 receiptList.add(currentReceipt);
             }
         } catch (SQLException e) {
+            timer.fail(e);
             handleError(e);
         }
+        timer.stop(receiptList.size());
         return receiptList;
     }
 
@@ -172,37 +291,871 @@ public class ReceiptQueryHelper {
      * @return A list of all Receipts in the H2 database within the specified date range
      */
     protected List<RowInterface> findReceiptInDateRange(Date lowerBound, Date upperBound) {
+        QueryTimer timer = QueryMetrics.start("receipt.findReceiptInDateRange");
         List<RowInterface> receiptList = new ArrayList<>();
-        try (PreparedStatement st = databaseConnection.prepareStatement("SELECT * FROM RECEIPT WHERE timeOfPurchase >= ? AND timeOfPurchase <= ?")) {
+        try {
+            // Only the partitions for the months in the range are read
+            List<String> overlapping = partitions().overlapping(lowerBound, upperBound);
+            if (!overlapping.isEmpty()) {
+                try (Connection conn = connectionPool.getConnection();
+                     PreparedStatement st = conn.prepareStatement(ReceiptPartitions.unionOf(overlapping, DATE_RANGE_SELECT))) {
+                    st.setQueryTimeout(QUERY_TIMEOUT);
+                    bindDateRanges(st, overlapping.size(), lowerBound, upperBound);
+                    ResultSet rs = st.executeQuery();
+                    RowMapper<Receipt> receiptMapper = bindReceiptMapper(rs);
+                    while (rs.next()) {
+                        Receipt currentReceipt = receiptMapper.mapRow(rs);
+                        receiptList.add(currentReceipt);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            timer.fail(e);
+            handleError(e);
+        }
+        timer.stop(receiptList.size());
+        return receiptList;
+    }
+
+    /**
+     * A helper function for querying the Receipts with the specified
+     * storeNumber, together with their coffee and store details
+     *
+     * @param storeNumber The storeNumber that the queried rows should have
+     * @return A list of EnrichedReceipts for the Receipts in the H2 database with the specified storeNumber
+     */
+    protected List<RowInterface> findEnrichedByStoreNumber(int storeNumber) {
+        return findEnriched("receipt.findEnrichedByStoreNumber",
+                String.format(ENRICHED_SELECT, "RECEIPT") + " WHERE r.storeNumber = ?", st -> st.setInt(1, storeNumber));
+    }
+
+    /**
+     * A helper function for querying the Receipts with the specified
+     * coffeeID, together with their coffee and store details
+     *
+     * @param coffeeID The coffeeID that the queried rows should have
+     * @return A list of EnrichedReceipts for the Receipts in the H2 database with the specified coffeeID
+     */
+    protected List<RowInterface> findEnrichedByCoffeeID(int coffeeID) {
+        return findEnriched("receipt.findEnrichedByCoffeeID",
+                String.format(ENRICHED_SELECT, "RECEIPT") + " WHERE r.coffeeID = ?", st -> st.setInt(1, coffeeID));
+    }
+
+    /**
+     * A helper function for querying the Receipts within a specified
+     * quantity range, together with their coffee and store details
+     *
+     * @param lowerBound the lower bound (inclusive) for the quantity range
+     * @param upperBound the upper bound (inclusive) for the quantity range
+     * @return A list of EnrichedReceipts for the Receipts in the H2 database within the specified quantity range
+     */
+    protected List<RowInterface> findEnrichedInQuantityRange(int lowerBound, int upperBound) {
+        return findEnriched("receipt.findEnrichedInQuantityRange",
+                String.format(ENRICHED_SELECT, "RECEIPT") + " WHERE r.quantity >= ? AND r.quantity <= ?", st -> {
+                    st.setInt(1, lowerBound);
+                    st.setInt(2, upperBound);
+                });
+    }
+
+    /**
+     * A helper function for querying the Receipts within a specified date
+     * range, together with their coffee and store details. Only the
+     * partitions for the months in the range are joined.
+     *
+     * @param lowerBound the lower bound (inclusive) for the date range
+     * @param upperBound the upper bound (inclusive) for the date range
+     * @return A list of EnrichedReceipts for the Receipts in the H2 database within the specified date range
+     */
+    protected List<RowInterface> findEnrichedInDateRange(Date lowerBound, Date upperBound) {
+        List<String> overlapping;
+        try {
+            overlapping = partitions().overlapping(lowerBound, upperBound);
+        } catch (SQLException e) {
+            handleError(e);
+            return new ArrayList<>();
+        }
+        if (overlapping.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return findEnriched("receipt.findEnrichedInDateRange",
+                ReceiptPartitions.unionOf(overlapping, ENRICHED_SELECT + " WHERE r.timeOfPurchase >= ? AND r.timeOfPurchase <= ?"),
+                st -> bindDateRanges(st, overlapping.size(), lowerBound, upperBound));
+    }
+
+    /**
+     * Runs a RECEIPT, COFFEE and STORE join in a single statement, so each
+     * row arrives with its coffee and store details rather than needing a
+     * lookup per row
+     */
+    private List<RowInterface> findEnriched(String queryName, String sql, ParameterBinder binder) {
+        QueryTimer timer = QueryMetrics.start(queryName);
+        List<RowInterface> receiptList = new ArrayList<>();
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement st = conn.prepareStatement(sql)) {
             st.setQueryTimeout(QUERY_TIMEOUT);
-            st.setDate(1, lowerBound);
-            st.setDate(2, upperBound);
+            binder.bind(st);
             ResultSet rs = st.executeQuery();
+            RowMapper<EnrichedReceipt> receiptMapper = bindEnrichedReceiptMapper(rs);
             while (rs.next()) {
-                Receipt currentReceipt = buildReceiptFromRow(rs);
+                EnrichedReceipt currentReceipt = receiptMapper.mapRow(rs);
                 receiptList.add(currentReceipt);
             }
         } catch (SQLException e) {
+            timer.fail(e);
+            handleError(e);
+        }
+        timer.stop(receiptList.size());
+        return receiptList;
+    }
+
+    /**
+     * A version of findReceiptInDateRange returning CompactReceipts, for
+     * callers that hold many receipts in memory at once
+     *
+     * @param lowerBound the lower bound (inclusive) for the date range
+     * @param upperBound the upper bound (inclusive) for the date range
+     * @return A list of all Receipts in the H2 database within the specified date range
+     */
+    protected List<CompactReceipt> findCompactInDateRange(Date lowerBound, Date upperBound) {
+        QueryTimer timer = QueryMetrics.start("receipt.findCompactInDateRange");
+        List<CompactReceipt> receiptList = new ArrayList<>();
+        try {
+            List<String> overlapping = partitions().overlapping(lowerBound, upperBound);
+            if (!overlapping.isEmpty()) {
+                try (Connection conn = connectionPool.getConnection();
+                     PreparedStatement st = conn.prepareStatement(ReceiptPartitions.unionOf(overlapping, DATE_RANGE_SELECT))) {
+                    st.setQueryTimeout(QUERY_TIMEOUT);
+                    bindDateRanges(st, overlapping.size(), lowerBound, upperBound);
+                    ResultSet rs = st.executeQuery();
+                    RowMapper<CompactReceipt> receiptMapper = bindCompactReceiptMapper(rs);
+                    while (rs.next()) {
+                        receiptList.add(receiptMapper.mapRow(rs));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            timer.fail(e);
             handleError(e);
         }
+        timer.stop(receiptList.size());
         return receiptList;
     }
 
     /**
-     * A private helper function for converting a row from ResultSet (JDBC's
-     * standard return type for a query) to an instance of the Receipt class.
+     * A paginated version of findAll, ordered by receiptID. Pages are found by
+     * seeking past the last receiptID of the previous page rather than with
+     * OFFSET, so every page costs the same no matter how deep into the table it is.
+     * The seek runs on RECEIPT_KEY's primary key, which holds every receiptID
+     * in order, and the page's receipts are then read from their partitions,
+     * since ordering the RECEIPT view would sort every partition's rows.
      *
-     * @param rs The ResultSet being iterated from executing a query
-     * @return The Receipt instance that matches the ResultSet's current row
+     * @param pageSize The maximum number of Receipts on the page, at most MAX_PAGE_SIZE
+     * @param pageToken The token from the previous page, or null for the first page
+     * @return The page of Receipts and the token for the next page
+     * @throws IllegalArgumentException If pageSize is not positive or the token is not from this query
+     */
+    protected ReceiptPage findAllPage(int pageSize, String pageToken) {
+        pageSize = checkPageSize(pageSize);
+        int afterReceiptID = pageToken == null ? Integer.MIN_VALUE : (int) decodePageToken(pageToken, ALL_PAGE_KIND, 1)[0];
+        QueryTimer timer = QueryMetrics.start("receipt.findAllPage");
+        List<RowInterface> receiptList = new ArrayList<>();
+        String nextPageToken = null;
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement keySt = conn.prepareStatement("SELECT receiptID, partitionMonth FROM RECEIPT_KEY " +
+                     "WHERE receiptID > ? ORDER BY receiptID LIMIT ?")) {
+            keySt.setQueryTimeout(QUERY_TIMEOUT);
+            keySt.setInt(1, afterReceiptID);
+            // Fetch one extra key to find out whether there is another page
+            keySt.setInt(2, pageSize + 1);
+            ResultSet keys = keySt.executeQuery();
+            List<Integer> pageIDs = new ArrayList<>(pageSize);
+            Map<Integer, List<Integer>> idsByPartition = new TreeMap<>();
+            while (keys.next()) {
+                if (pageIDs.size() == pageSize) {
+                    nextPageToken = encodePageToken(ALL_PAGE_KIND, pageIDs.getLast());
+                    break;
+                }
+                pageIDs.add(keys.getInt(1));
+                idsByPartition.computeIfAbsent(keys.getInt(2), month -> new ArrayList<>()).add(keys.getInt(1));
+            }
+            Map<Integer, Receipt> found = new HashMap<>();
+            readPartitions(conn, idsByPartition, found);
+            for (int receiptID : pageIDs) {
+                Receipt currentReceipt = found.get(receiptID);
+                if (currentReceipt != null) {
+                    receiptList.add(currentReceipt);
+                }
+            }
+        } catch (SQLException e) {
+            timer.fail(e);
+            handleError(e);
+        }
+        timer.stop(receiptList.size());
+        return new ReceiptPage(receiptList, nextPageToken);
+    }
+
+    /**
+     * A paginated version of findReceiptInDateRange, ordered by
+     * (timeOfPurchase, receiptID). Pages are found by seeking past the last
+     * (timeOfPurchase, receiptID) of the previous page on the partitions' time index,
+     * so every page costs the same no matter how deep into the range it is.
+     *
+     * @param lowerBound the lower bound (inclusive) for the date range
+     * @param upperBound the upper bound (inclusive) for the date range
+     * @param pageSize The maximum number of Receipts on the page, at most MAX_PAGE_SIZE
+     * @param pageToken The token from the previous page of the same date range, or null for the first page
+     * @return The page of Receipts and the token for the next page
+     * @throws IllegalArgumentException If pageSize is not positive or the token is not from this query and date range
+     */
+    protected ReceiptPage findReceiptInDateRangePage(Date lowerBound, Date upperBound, int pageSize, String pageToken) {
+        pageSize = checkPageSize(pageSize);
+        // The first page starts just before the first receipt at the lower bound
+        Timestamp afterTime = new Timestamp(lowerBound.getTime());
+        int afterReceiptID = Integer.MIN_VALUE;
+        if (pageToken != null) {
+            // The token starts with the bounds it was issued for, so it cannot be replayed against another range
+            long[] position = decodePageToken(pageToken, DATE_RANGE_PAGE_KIND, 5);
+            if (position[0] != lowerBound.getTime() || position[1] != upperBound.getTime()) {
+                throw new IllegalArgumentException("The page token belongs to a different date range");
+            }
+            afterTime = new Timestamp(position[2]);
+            afterTime.setNanos((int) position[3]);
+            afterReceiptID = (int) position[4];
+        }
+        QueryTimer timer = QueryMetrics.start("receipt.findReceiptInDateRangePage");
+        List<RowInterface> receiptList = new ArrayList<>();
+        String nextPageToken = null;
+        // The index range starts at the previous page's last time rather than at the lower bound,
+        // so a deep page does not scan the rows before it; the OR only breaks ties on that time
+        Timestamp seekFrom = afterTime.getTime() > lowerBound.getTime() ? afterTime : new Timestamp(lowerBound.getTime());
+        try (Connection conn = connectionPool.getConnection()) {
+            // Partitions are in time order, so the page is filled from the partition holding
+            // the previous page's last receipt onwards, stopping once it has one extra row
+            // to find out whether there is another page
+            for (String partition : partitions().overlapping(new Date(seekFrom.getTime()), upperBound)) {
+                try (PreparedStatement st = conn.prepareStatement("SELECT * FROM " + partition + " " +
+                        "WHERE timeOfPurchase >= ? AND timeOfPurchase <= ? " +
+                        "AND (timeOfPurchase > ? OR (timeOfPurchase = ? AND receiptID > ?)) " +
+                        "ORDER BY timeOfPurchase, receiptID LIMIT ?")) {
+                    st.setQueryTimeout(QUERY_TIMEOUT);
+                    st.setTimestamp(1, seekFrom);
+                    st.setDate(2, upperBound);
+                    st.setTimestamp(3, afterTime);
+                    st.setTimestamp(4, afterTime);
+                    st.setInt(5, afterReceiptID);
+                    st.setInt(6, pageSize + 1 - receiptList.size());
+                    ResultSet rs = st.executeQuery();
+                    RowMapper<Receipt> receiptMapper = bindReceiptMapper(rs);
+                    while (rs.next()) {
+                        Receipt currentReceipt = receiptMapper.mapRow(rs);
+                        receiptList.add(currentReceipt);
+                    }
+                }
+                if (receiptList.size() > pageSize) {
+                    receiptList.removeLast();
+                    Receipt lastReceipt = (Receipt) receiptList.getLast();
+                    Timestamp lastTime = lastReceipt.getTimeOfPurchase();
+                    nextPageToken = encodePageToken(DATE_RANGE_PAGE_KIND, lowerBound.getTime(), upperBound.getTime(),
+                            lastTime.getTime(), lastTime.getNanos(), lastReceipt.getReceiptId());
+                    break;
+                }
+            }
+        } catch (SQLException e) {
+            timer.fail(e);
+            handleError(e);
+        }
+        timer.stop(receiptList.size());
+        return new ReceiptPage(receiptList, nextPageToken);
+    }
+
+    /**
+     * Encodes a position in a paginated query as an opaque, URL-safe token.
+     * The kind identifies the query so that a token cannot be used with another.
+     */
+    private static String encodePageToken(String kind, long... position) {
+        StringBuilder token = new StringBuilder(kind);
+        for (long value : position) {
+            token.append(':').append(value);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param length The number of values the query's tokens hold
+     * @throws IllegalArgumentException when the token is malformed or belongs to another query
+     */
+    private static long[] decodePageToken(String pageToken, String expectedKind, int length) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8).split(":", -1);
+            if (!parts[0].equals(expectedKind)) {
+                throw new IllegalArgumentException("The page token belongs to a different query");
+            }
+            if (parts.length != length + 1) {
+                throw new IllegalArgumentException("Expected " + length + " values but found " + (parts.length - 1));
+            }
+            long[] position = new long[parts.length - 1];
+            for (int i = 1; i < parts.length; i++) {
+                position[i - 1] = Long.parseLong(parts[i]);
+            }
+            return position;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page token: " + pageToken, e);
+        }
+    }
+
+    /**
+     * @return The page size cut to MAX_PAGE_SIZE
+     * @throws IllegalArgumentException If the page size is not positive
+     */
+    private static int checkPageSize(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("The page size must be at least 1, but was " + pageSize);
+        }
+        return Math.min(pageSize, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Inserts many Receipts using JDBC batching. Rows are sent to the database
+     * batchSize at a time and each batch is committed as its own transaction.
+     * Rows that violate a constraint, such as a storeNumber or coffeeID that
+     * does not exist in STORE or COFFEE, are skipped and reported rather than
+     * aborting the rest of the batch.
+     *
+     * @param receipts The Receipts to insert
+     * @return The number of rows inserted, the rejected rows, and the insert throughput
+     */
+    protected BatchInsertResult insertReceipts(List<Receipt> receipts) {
+        QueryTimer timer = QueryMetrics.start("receipt.insertReceipts");
+        long start = System.nanoTime();
+        int insertedCount = 0;
+        List<Receipt> rejected = new ArrayList<>();
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement keySt = conn.prepareStatement("INSERT INTO RECEIPT_KEY VALUES (?, ?)")) {
+            conn.setAutoCommit(false);
+            keySt.setQueryTimeout(QUERY_TIMEOUT);
+            for (int from = 0; from < receipts.size(); from += batchSize) {
+                List<Receipt> batch = receipts.subList(from, Math.min(from + batchSize, receipts.size()));
+                insertedCount += executeBatch(conn, keySt, batch, rejected);
+            }
+        } catch (SQLException e) {
+            timer.fail(e);
+            handleError(e);
+        }
+        timer.stop(insertedCount);
+        return new BatchInsertResult(insertedCount, rejected, System.nanoTime() - start);
+    }
+
+    /**
+     * Sets the number of rows sent per batch by insertReceipts
+     *
+     * @param batchSize The number of rows per JDBC batch and transaction
+     * @throws IllegalArgumentException If batchSize is less than 1
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be at least 1, but was " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Inserts and commits one batch. Each receipt's key is inserted into
+     * RECEIPT_KEY first, which rejects receiptIDs that already exist in any
+     * partition, and the remaining receipts are then inserted into their
+     * month's partition. A receipt its partition rejects has its key removed
+     * again. The rows that succeeded are added to the daily sales rollup and
+     * committed either way. The partitions cannot be dropped until then.
+     *
+     * @return The number of rows inserted from the batch
+     * @throws SQLException when a row fails for any reason other than a constraint violation,
+     *                      in which case the batch is rolled back
+     */
+    private int executeBatch(Connection conn, PreparedStatement keySt, List<Receipt> batch,
+                             List<Receipt> rejected) throws SQLException {
+        // Creating a partition commits the transaction, so it must happen before anything is written
+        Set<YearMonth> months = new HashSet<>();
+        for (Receipt receipt : batch) {
+            months.add(ReceiptPartitions.monthOf(receipt.getTimeOfPurchase()));
+        }
+        Lock partitionLock = partitions().lockForWrite(conn, months);
+        try {
+            List<Receipt> keyed = executeRows(keySt, batch, ReceiptQueryHelper::bindReceiptKey, rejected);
+            Map<String, List<Receipt>> byPartition = new TreeMap<>();
+            for (Receipt receipt : keyed) {
+                byPartition.computeIfAbsent(ReceiptPartitions.tableName(ReceiptPartitions.monthOf(receipt.getTimeOfPurchase())),
+                        partition -> new ArrayList<>()).add(receipt);
+            }
+
+            List<Receipt> inserted = new ArrayList<>(keyed.size());
+            List<Receipt> unkeyed = new ArrayList<>();
+            for (Map.Entry<String, List<Receipt>> entry : byPartition.entrySet()) {
+                try (PreparedStatement st = conn.prepareStatement("INSERT INTO " + entry.getKey() + " VALUES (?, ?, ?, ?, ?)")) {
+                    st.setQueryTimeout(QUERY_TIMEOUT);
+                    inserted.addAll(executeRows(st, entry.getValue(), ReceiptQueryHelper::bindReceipt, unkeyed));
+                }
+            }
+            if (!unkeyed.isEmpty()) {
+                try (PreparedStatement st = conn.prepareStatement("DELETE FROM RECEIPT_KEY WHERE receiptID = ?")) {
+                    st.setQueryTimeout(QUERY_TIMEOUT);
+                    for (Receipt receipt : unkeyed) {
+                        st.setInt(1, receipt.getReceiptId());
+                        st.addBatch();
+                    }
+                    st.executeBatch();
+                }
+                rejected.addAll(unkeyed);
+            }
+            SalesRollup.addReceipts(conn, inserted);
+            conn.commit();
+            return inserted.size();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            partitionLock.unlock();
+        }
+    }
+
+    /**
+     * Executes one JDBC batch of the rows. When some rows fail with a
+     * constraint violation the others still count as written. If the driver
+     * stopped at the first failure, the rows after it are retried one at a time.
+     *
+     * @return The rows that were written
+     * @throws SQLException when a row fails for any reason other than a constraint violation
+     */
+    private static List<Receipt> executeRows(PreparedStatement st, List<Receipt> rows, ReceiptBinder binder,
+                                             List<Receipt> rejected) throws SQLException {
+        for (Receipt receipt : rows) {
+            binder.bind(st, receipt);
+            st.addBatch();
+        }
+        try {
+            st.executeBatch();
+            return rows;
+        } catch (BatchUpdateException e) {
+            if (!isIntegrityViolation(e)) {
+                throw e;
+            }
+            st.clearBatch();
+            List<Receipt> written = new ArrayList<>(rows.size());
+            int[] updateCounts = e.getUpdateCounts();
+            for (int i = 0; i < rows.size(); i++) {
+                if (i < updateCounts.length) {
+                    if (updateCounts[i] == Statement.EXECUTE_FAILED) {
+                        rejected.add(rows.get(i));
+                    } else {
+                        written.add(rows.get(i));
+                    }
+                } else if (insertSingle(st, rows.get(i), binder)) {
+                    written.add(rows.get(i));
+                } else {
+                    rejected.add(rows.get(i));
+                }
+            }
+            return written;
+        }
+    }
+
+    private static boolean insertSingle(PreparedStatement st, Receipt receipt, ReceiptBinder binder) throws SQLException {
+        try {
+            binder.bind(st, receipt);
+            st.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            if (isIntegrityViolation(e)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private static void bindReceiptKey(PreparedStatement st, Receipt receipt) throws SQLException {
+        st.setInt(1, receipt.getReceiptId());
+        st.setInt(2, ReceiptPartitions.monthKey(ReceiptPartitions.monthOf(receipt.getTimeOfPurchase())));
+    }
+
+    private static void bindReceipt(PreparedStatement st, Receipt receipt) throws SQLException {
+        st.setInt(1, receipt.getReceiptId());
+        st.setInt(2, receipt.getStoreNumber());
+        st.setTimestamp(3, receipt.getTimeOfPurchase());
+        st.setInt(4, receipt.getCoffeeID());
+        st.setInt(5, receipt.getQuantity());
+    }
+
+    /**
+     * Checks whether the exception, and every exception chained to it, is an
+     * integrity constraint violation (SQLState class 23) such as a foreign key
+     * or primary key violation
+     */
+    private static boolean isIntegrityViolation(SQLException err) {
+        for (SQLException current = err; current != null; current = current.getNextException()) {
+            String state = current.getSQLState();
+            if (state == null || !state.startsWith(INTEGRITY_VIOLATION_CLASS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sets the number of rows fetched per round trip by the streaming
+     * queries below
+     *
+     * @param fetchSize The JDBC fetch size used for streamed results
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * A streaming version of findAll. Rows are read from the database as the
+     * Stream is consumed instead of being collected into a List up front, so
+     * memory use stays constant regardless of the size of the table.
+     * The Stream holds a pooled connection and must be closed, preferably
+     * with try-with-resources.
+     *
+     * @return A Stream of all Receipts in the H2 database
+     */
+    protected Stream<Receipt> streamAll() {
+        return streamReceipts("receipt.streamAll", "SELECT * FROM RECEIPT", st -> { });
+    }
+
+    /**
+     * A streaming version of findReceiptInQuantityRange. The Stream must be closed.
+     *
+     * @param lowerBound the lower bound (inclusive) for the quantity range
+     * @param upperBound the upper bound (inclusive) for the quantity range
+     * @return A Stream of all Receipts in the H2 database within the specified quantity range
+     */
+    protected Stream<Receipt> streamReceiptInQuantityRange(int lowerBound, int upperBound) {
+        return streamReceipts("receipt.streamReceiptInQuantityRange", "SELECT * FROM RECEIPT WHERE quantity >= ? AND quantity <= ?", st -> {
+            st.setInt(1, lowerBound);
+            st.setInt(2, upperBound);
+        });
+    }
+
+    /**
+     * A streaming version of findReceiptInDateRange. The Stream must be closed.
+     *
+     * @param lowerBound the lower bound (inclusive) for the date range
+     * @param upperBound the upper bound (inclusive) for the date range
+     * @return A Stream of all Receipts in the H2 database within the specified date range
+     */
+    protected Stream<Receipt> streamReceiptInDateRange(Date lowerBound, Date upperBound) {
+        List<String> overlapping;
+        try {
+            overlapping = partitions().overlapping(lowerBound, upperBound);
+        } catch (SQLException e) {
+            handleError(e);
+            return Stream.empty();
+        }
+        if (overlapping.isEmpty()) {
+            return Stream.empty();
+        }
+        return streamReceipts("receipt.streamReceiptInDateRange", ReceiptPartitions.unionOf(overlapping, DATE_RANGE_SELECT),
+                st -> bindDateRanges(st, overlapping.size(), lowerBound, upperBound));
+    }
+
+    /**
+     * Opens a cursor for the query and wraps it in a Stream that closes the
+     * cursor, and returns its connection to the pool, when the Stream is closed.
+     * H2's lazy query execution is enabled for the cursor's session so that
+     * the result is produced row by row rather than materialized in memory.
+     * The query's latency is recorded when the Stream is closed.
+     */
+    private Stream<Receipt> streamReceipts(String queryName, String sql, ParameterBinder binder) {
+        ReceiptCursor cursor = new ReceiptCursor(QueryMetrics.start(queryName));
+        try {
+            cursor.open(sql, binder);
+        } catch (SQLException e) {
+            cursor.timer.fail(e);
+            handleError(e);
+            cursor.close();
+            return Stream.empty();
+        }
+        // The rows are read in the caller's code, which may run other queries in the meantime
+        cursor.timer.detach();
+        return StreamSupport.stream(cursor, false).onClose(cursor::close);
+    }
+
+    /**
+     * Appends the receipts with a receiptID greater than afterReceiptID to a
+     * columnar snapshot, one partition at a time. The values are copied straight
+     * from the ResultSet into the snapshot's arrays without building Receipt objects.
+     * Each partition is read lazily on its own primary key, with no ORDER BY,
+     * since sorting the RECEIPT view would materialize every partition first.
+     *
+     * @param snapshot The snapshot to append to
+     * @param afterReceiptID The largest receiptID already in the snapshot
+     */
+    protected void loadSnapshotRows(ReceiptSnapshot snapshot, int afterReceiptID) {
+        QueryTimer timer = QueryMetrics.start("receipt.loadSnapshotRows");
+        int sizeBefore = snapshot.size();
+        try (Connection conn = connectionPool.getConnection()) {
+            setLazyExecution(conn, true);
+            try {
+                for (String partition : partitions().allTables()) {
+                    try (PreparedStatement st = conn.prepareStatement("SELECT receiptID, storeNumber, timeOfPurchase, coffeeID, quantity " +
+                            "FROM " + partition + " WHERE receiptID > ?")) {
+                        st.setQueryTimeout(QUERY_TIMEOUT);
+                        st.setFetchSize(fetchSize);
+                        st.setInt(1, afterReceiptID);
+                        ResultSet rs = st.executeQuery();
+                        while (rs.next()) {
+                            Timestamp timeOfPurchase = rs.getTimestamp(3);
+                            snapshot.append(rs.getInt(1),
+                                    rs.getInt(2),
+                                    timeOfPurchase == null ? ReceiptSnapshot.NO_TIME : timeOfPurchase.getTime(),
+                                    rs.getInt(4),
+                                    rs.getInt(5));
+                        }
+                    }
+                }
+            } finally {
+                setLazyExecution(conn, false);
+            }
+        } catch (SQLException e) {
+            timer.fail(e);
+            handleError(e);
+        }
+        timer.stop(snapshot.size() - sizeBefore);
+    }
+
+    /**
+     * @return The months that have a receipt partition, oldest first
+     */
+    protected List<YearMonth> findPartitionMonths() {
+        try {
+            return List.copyOf(partitions().getMonths());
+        } catch (SQLException e) {
+            handleError(e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Drops the partition for a month, deleting all of its receipts and
+     * their daily sales totals. This is a single DROP TABLE rather than a
+     * row by row DELETE.
+     *
+     * @param month The month whose receipts should be deleted
+     * @return true if the partition existed and was dropped
+     */
+    protected boolean dropPartition(YearMonth month) {
+        try (Connection conn = connectionPool.getConnection()) {
+            return partitions().drop(conn, month);
+        } catch (SQLException e) {
+            handleError(e);
+            return false;
+        }
+    }
+
+    /**
+     * Archives the partition for a month to a compressed SQL script and
+     * then drops it. The receipts can be restored with RUNSCRIPT FROM the
+     * file followed by recreating the RECEIPT view.
+     *
+     * @param month The month whose receipts should be archived
+     * @param scriptFile The file to write the archive to
+     * @return true if the partition existed and was archived
+     */
+    protected boolean archivePartition(YearMonth month, String scriptFile) {
+        try (Connection conn = connectionPool.getConnection()) {
+            return partitions().archive(conn, month, scriptFile);
+        } catch (SQLException e) {
+            handleError(e);
+            return false;
+        }
+    }
+
+    /**
+     * Binds the bounds of a union of DATE_RANGE_SELECT queries
+     */
+    private static void bindDateRanges(PreparedStatement st, int partitionCount, Date lowerBound, Date upperBound) throws SQLException {
+        for (int i = 0; i < partitionCount; i++) {
+            st.setDate(2 * i + 1, lowerBound);
+            st.setDate(2 * i + 2, upperBound);
+        }
+    }
+
+    /**
+     * Turns H2's lazy query execution on or off for the connection's session.
+     * With it on, H2 produces query results row by row as they are fetched
+     * instead of materializing the whole result first.
+     */
+    private static void setLazyExecution(Connection conn, boolean lazy) throws SQLException {
+        try (Statement settings = conn.createStatement()) {
+            settings.execute("SET LAZY_QUERY_EXECUTION " + (lazy ? "TRUE" : "FALSE"));
+        }
+    }
+
+    /**
+     * Sets the parameters of a PreparedStatement before it is executed
+     */
+    @FunctionalInterface
+    private interface ParameterBinder {
+        void bind(PreparedStatement st) throws SQLException;
+    }
+
+    /**
+     * Sets the parameters of a batched PreparedStatement from a Receipt
+     */
+    @FunctionalInterface
+    private interface ReceiptBinder {
+        void bind(PreparedStatement st, Receipt receipt) throws SQLException;
+    }
+
+    private final class ReceiptCursor extends Spliterators.AbstractSpliterator<Receipt> implements AutoCloseable {
+        private final QueryTimer timer;
+        private long rowCount;
+        private Connection conn;
+        private PreparedStatement st;
+        private ResultSet rs;
+        private RowMapper<Receipt> receiptMapper;
+        private boolean lazyExecution;
+
+        private ReceiptCursor(QueryTimer timer) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.timer = timer;
+        }
+
+        private void open(String sql, ParameterBinder binder) throws SQLException {
+            conn = connectionPool.getConnection();
+            setLazyExecution(conn, true);
+            lazyExecution = true;
+            st = conn.prepareStatement(sql);
+            st.setQueryTimeout(QUERY_TIMEOUT);
+            st.setFetchSize(fetchSize);
+            binder.bind(st);
+            rs = st.executeQuery();
+            receiptMapper = bindReceiptMapper(rs);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Receipt> action) {
+            if (rs == null) {
+                return false;
+            }
+            try {
+                if (!rs.next()) {
+                    return false;
+                }
+                action.accept(receiptMapper.mapRow(rs));
+                rowCount++;
+                return true;
+            } catch (SQLException e) {
+                timer.fail(e);
+                handleError(e);
+                return false;
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (rs != null) {
+                    rs.close();
+                }
+                if (st != null) {
+                    st.close();
+                }
+                if (lazyExecution) {
+                    setLazyExecution(conn, false);
+                }
+            } catch (SQLException e) {
+                handleError(e);
+            } finally {
+                rs = null;
+                st = null;
+                lazyExecution = false;
+                timer.stop(rowCount);
+                if (conn != null) {
+                    try {
+                        conn.close();
+                    } catch (SQLException e) {
+                        handleError(e);
+                    }
+                    conn = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * A helper function for building a RowMapper that converts rows from
+     * a ResultSet (JDBC's standard return type for a query) to instances of the
+     * Receipt class. The column ordinals are looked up once here rather than by
+     * name on every row.
+     *
+     * @param rs The ResultSet that will be iterated from executing a query
+     * @return A RowMapper producing the Receipt instance that matches the ResultSet's current row
+     * @throws SQLException when the ResultSet is closed or another exception occurs
+     *                      such as a column that is not part of the ResultSet
+     */
+    static RowMapper<Receipt> bindReceiptMapper(ResultSet rs) throws SQLException {
+        int receiptID = rs.findColumn("receiptID");
+        int storeNumber = rs.findColumn("storeNumber");
+        int timeOfPurchase = rs.findColumn("timeOfPurchase");
+        int coffeeID = rs.findColumn("coffeeID");
+        int quantity = rs.findColumn("quantity");
+        return row -> new Receipt(row.getInt(receiptID),
+                row.getInt(storeNumber),
+                row.getTimestamp(timeOfPurchase),
+                row.getInt(coffeeID),
+                row.getInt(quantity));
+    }
+
+    /**
+     * A version of bindReceiptMapper producing CompactReceipts. The
+     * timeOfPurchase is read as a Timestamp only to take its epoch milliseconds.
+     *
+     * @param rs The ResultSet that will be iterated from executing a query
+     * @return A RowMapper producing the CompactReceipt instance that matches the ResultSet's current row
+     * @throws SQLException when the ResultSet is closed or a column is not part of the ResultSet
+     */
+    static RowMapper<CompactReceipt> bindCompactReceiptMapper(ResultSet rs) throws SQLException {
+        int receiptID = rs.findColumn("receiptID");
+        int storeNumber = rs.findColumn("storeNumber");
+        int timeOfPurchase = rs.findColumn("timeOfPurchase");
+        int coffeeID = rs.findColumn("coffeeID");
+        int quantity = rs.findColumn("quantity");
+        return row -> {
+            Timestamp time = row.getTimestamp(timeOfPurchase);
+            return new CompactReceipt(row.getInt(receiptID),
+                    row.getInt(storeNumber),
+                    time == null ? CompactReceipt.NO_TIME : time.getTime(),
+                    row.getInt(coffeeID),
+                    row.getInt(quantity));
+        };
+    }
+
+    /**
+     * A helper function for building a RowMapper that converts rows of the
+     * enriched receipt join to instances of the EnrichedReceipt class
+     *
+     * @param rs The ResultSet that will be iterated from executing a query
+     * @return A RowMapper producing the EnrichedReceipt instance that matches the ResultSet's current row
      * @throws SQLException when the ResultSet is closed or another exception occurs
-     *                      such as trying to access a column that is not part of the ResultSet
-     */
-    private static Receipt buildReceiptFromRow(ResultSet rs) throws SQLException {
-        return new Receipt(rs.getInt("receiptID"),
-                rs.getInt("storeNumber"),
-                rs.getTimestamp("timeOfPurchase"),
-                rs.getInt("coffeeID"),
-                rs.getInt("quantity"));
+     *                      such as a column that is not part of the ResultSet
+     */
+    static RowMapper<EnrichedReceipt> bindEnrichedReceiptMapper(ResultSet rs) throws SQLException {
+        int receiptID = rs.findColumn("receiptID");
+        int storeNumber = rs.findColumn("storeNumber");
+        int storeCity = rs.findColumn("storeCity");
+        int timeOfPurchase = rs.findColumn("timeOfPurchase");
+        int coffeeID = rs.findColumn("coffeeID");
+        int coffeeName = rs.findColumn("coffeeName");
+        int price = rs.findColumn("price");
+        int quantity = rs.findColumn("quantity");
+        return row -> new EnrichedReceipt(row.getInt(receiptID),
+                row.getInt(storeNumber),
+                row.getString(storeCity),
+                row.getTimestamp(timeOfPurchase),
+                row.getInt(coffeeID),
+                row.getString(coffeeName),
+                row.getDouble(price),
+                row.getInt(quantity));
     }
 
     /**
@@ -0,0 +1,252 @@
+/**
+ * An in-memory, column-oriented copy of the RECEIPT table for analytics
+ * scans. Instead of one Receipt object per row, each column is held in its
+ * own primitive array and timeOfPurchase is stored as epoch milliseconds.
+ * Scans over the arrays are tight counted loops that the JIT can unroll
+ * and vectorize, and a row costs 24 bytes instead of a Receipt object plus
+ * its Timestamp.
+ *
+ * The snapshot is refreshed incrementally by loading only the receipts
+ * with a receiptID greater than the largest one already loaded, which
+ * assumes receipts are appended with increasing IDs and not updated.
+ */
+
+package cs1530.dbdemo;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class ReceiptSnapshot {
+    private static final int INITIAL_CAPACITY = 1024;
+    // The largest array the JVM can reliably allocate, as in java.util.ArrayList
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+    // Grouped sums index an array by key only while the key range is at most
+    // this many times the row count; sparser keys are summed in a HashMap
+    private static final int DENSE_KEY_FACTOR = 4;
+    static final long NO_TIME = Long.MIN_VALUE;
+
+    private int[] receiptIDs = new int[INITIAL_CAPACITY];
+    private int[] storeNumbers = new int[INITIAL_CAPACITY];
+    private long[] timesOfPurchase = new long[INITIAL_CAPACITY];
+    private int[] coffeeIDs = new int[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private int size;
+    private int maxReceiptID = Integer.MIN_VALUE;
+
+    /**
+     * Builds a snapshot of every receipt currently in the RECEIPT table
+     *
+     * @param receiptHelper The helper used to read the RECEIPT table
+     * @return The loaded snapshot
+     */
+    public static ReceiptSnapshot load(ReceiptQueryHelper receiptHelper) {
+        ReceiptSnapshot snapshot = new ReceiptSnapshot();
+        snapshot.refresh(receiptHelper);
+        return snapshot;
+    }
+
+    /**
+     * Appends the receipts inserted since the last load or refresh
+     *
+     * @param receiptHelper The helper used to read the RECEIPT table
+     * @return The number of receipts appended
+     */
+    public int refresh(ReceiptQueryHelper receiptHelper) {
+        int sizeBefore = size;
+        receiptHelper.loadSnapshotRows(this, maxReceiptID);
+        return size - sizeBefore;
+    }
+
+    /**
+     * Appends a single row. Called by ReceiptQueryHelper while loading.
+     *
+     * @param timeOfPurchase The time of purchase in epoch milliseconds, or Long.MIN_VALUE when unknown
+     */
+    void append(int receiptID, int storeNumber, long timeOfPurchase, int coffeeID, int quantity) {
+        if (size == receiptIDs.length) {
+            if (size == MAX_CAPACITY) {
+                throw new OutOfMemoryError("The snapshot cannot hold more than " + MAX_CAPACITY + " receipts");
+            }
+            int capacity = (int) Math.min(MAX_CAPACITY, size * 2L);
+            receiptIDs = Arrays.copyOf(receiptIDs, capacity);
+            storeNumbers = Arrays.copyOf(storeNumbers, capacity);
+            timesOfPurchase = Arrays.copyOf(timesOfPurchase, capacity);
+            coffeeIDs = Arrays.copyOf(coffeeIDs, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+        }
+        receiptIDs[size] = receiptID;
+        storeNumbers[size] = storeNumber;
+        timesOfPurchase[size] = timeOfPurchase;
+        coffeeIDs[size] = coffeeID;
+        quantities[size] = quantity;
+        size++;
+        maxReceiptID = Math.max(maxReceiptID, receiptID);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getReceiptID(int row) {
+        return receiptIDs[row];
+    }
+
+    public int getStoreNumber(int row) {
+        return storeNumbers[row];
+    }
+
+    public long getTimeOfPurchaseMillis(int row) {
+        return timesOfPurchase[row];
+    }
+
+    public int getCoffeeID(int row) {
+        return coffeeIDs[row];
+    }
+
+    public int getQuantity(int row) {
+        return quantities[row];
+    }
+
+    /**
+     * @return The sum of quantity over every receipt
+     */
+    public long totalQuantity() {
+        int[] quantity = quantities;
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += quantity[i];
+        }
+        return total;
+    }
+
+    /**
+     * @param fromMillis The lower bound (inclusive) in epoch milliseconds
+     * @param toMillis The upper bound (inclusive) in epoch milliseconds
+     * @return The number of receipts purchased within the time range
+     */
+    public int countInTimeRange(long fromMillis, long toMillis) {
+        long[] time = timesOfPurchase;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            count += (time[i] >= fromMillis & time[i] <= toMillis) ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * @param fromMillis The lower bound (inclusive) in epoch milliseconds
+     * @param toMillis The upper bound (inclusive) in epoch milliseconds
+     * @return The sum of quantity over receipts purchased within the time range
+     */
+    public long quantityInTimeRange(long fromMillis, long toMillis) {
+        long[] time = timesOfPurchase;
+        int[] quantity = quantities;
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += (time[i] >= fromMillis & time[i] <= toMillis) ? quantity[i] : 0;
+        }
+        return total;
+    }
+
+    /**
+     * @param storeNumber The store to total
+     * @param fromMillis The lower bound (inclusive) in epoch milliseconds
+     * @param toMillis The upper bound (inclusive) in epoch milliseconds
+     * @return The sum of quantity over the store's receipts purchased within the time range
+     */
+    public long quantityForStoreInTimeRange(int storeNumber, long fromMillis, long toMillis) {
+        int[] store = storeNumbers;
+        long[] time = timesOfPurchase;
+        int[] quantity = quantities;
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            boolean matches = store[i] == storeNumber & time[i] >= fromMillis & time[i] <= toMillis;
+            total += matches ? quantity[i] : 0;
+        }
+        return total;
+    }
+
+    /**
+     * @return The sum of quantity per storeNumber, in storeNumber order
+     */
+    public Map<Integer, Long> quantityByStore() {
+        return sumQuantityGroupedBy(storeNumbers);
+    }
+
+    /**
+     * @return The sum of quantity per coffeeID, in coffeeID order
+     */
+    public Map<Integer, Long> quantityByCoffee() {
+        return sumQuantityGroupedBy(coffeeIDs);
+    }
+
+    /**
+     * @param storeNumber The store to filter for
+     * @return The row positions of the store's receipts, for use with the row getters
+     */
+    public int[] rowsForStore(int storeNumber) {
+        int[] store = storeNumbers;
+        int[] matches = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            matches[count] = i;
+            count += store[i] == storeNumber ? 1 : 0;
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * Converts a row back into a Receipt, for printing or for code that
+     * expects the object form
+     */
+    public Receipt toReceipt(int row) {
+        long time = timesOfPurchase[row];
+        return new Receipt(receiptIDs[row], storeNumbers[row],
+                time == NO_TIME ? null : new Timestamp(time),
+                coffeeIDs[row], quantities[row]);
+    }
+
+    /**
+     * Sums quantity grouped by a key such as a storeNumber or coffeeID. When
+     * the keys are dense, as the sample IDs are, each key is used as an
+     * offset into an array of totals. A key range much larger than the row
+     * count would make that array huge, so sparse keys are summed in a HashMap.
+     */
+    private Map<Integer, Long> sumQuantityGroupedBy(int[] keys) {
+        Map<Integer, Long> totals = new TreeMap<>();
+        if (size == 0) {
+            return totals;
+        }
+        int minKey = Integer.MAX_VALUE;
+        int maxKey = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            minKey = Math.min(minKey, keys[i]);
+            maxKey = Math.max(maxKey, keys[i]);
+        }
+        int[] quantity = quantities;
+        long keyRange = (long) maxKey - minKey + 1;
+        if (keyRange <= Math.max(INITIAL_CAPACITY, (long) DENSE_KEY_FACTOR * size)) {
+            long[] sums = new long[(int) keyRange];
+            boolean[] present = new boolean[(int) keyRange];
+            for (int i = 0; i < size; i++) {
+                sums[keys[i] - minKey] += quantity[i];
+                present[keys[i] - minKey] = true;
+            }
+            for (int offset = 0; offset < sums.length; offset++) {
+                if (present[offset]) {
+                    totals.put(minKey + offset, sums[offset]);
+                }
+            }
+        } else {
+            Map<Integer, Long> sums = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                sums.merge(keys[i], (long) quantity[i], Long::sum);
+            }
+            totals.putAll(sums);
+        }
+        return totals;
+    }
+}
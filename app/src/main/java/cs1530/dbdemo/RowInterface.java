@@ -9,4 +9,11 @@ package cs1530.dbdemo;
 
 public interface RowInterface {
     public String toString();
+
+    /**
+     * Passes each of the row's fields to the visitor, in column order
+     *
+     * @param visitor The visitor that receives the fields
+     */
+    public void visitFields(FieldVisitor visitor);
 }
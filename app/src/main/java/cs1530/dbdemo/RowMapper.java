@@ -0,0 +1,26 @@
+/**
+ * An interface for converting the current row of a ResultSet into a row
+ * class such as Store, Coffee or Receipt.
+ *
+ * Looking a column up by name on every row is comparatively expensive, so
+ * mappers are created per ResultSet by the helpers' static bind*Mapper
+ * methods, which resolve the column ordinals once and capture them.
+ * Mapping a row is then only a handful of positional getter calls.
+ *
+ * @param <T> The row class produced by the mapper
+ */
+
+package cs1530.dbdemo;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface RowMapper<T> {
+    /**
+     * @param rs The ResultSet positioned on the row to convert
+     * @return The row instance that matches the ResultSet's current row
+     * @throws SQLException when the ResultSet is closed or a value cannot be read
+     */
+    T mapRow(ResultSet rs) throws SQLException;
+}
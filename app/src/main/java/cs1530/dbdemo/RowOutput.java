@@ -0,0 +1,222 @@
+/**
+ * A large character buffer in front of a Writer that rows are rendered
+ * into. Strings are copied straight into the buffer and numbers are
+ * written digit by digit, so rendering a row creates no intermediate
+ * Strings, and the Writer only sees one write per buffer full.
+ *
+ * A RowOutput is not thread safe.
+ */
+
+package cs1530.dbdemo;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.sql.Timestamp;
+import java.util.TimeZone;
+
+public final class RowOutput implements Flushable, Closeable {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    // The longest a long is once written out, including its sign
+    private static final int MAX_LONG_LENGTH = 20;
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000;
+
+    private final Writer out;
+    private final char[] buffer;
+    private int position;
+    // Reused for doubles, which StringBuilder formats without allocating
+    private final StringBuilder scratch = new StringBuilder(32);
+    // The zone Timestamp.toString renders in. TimeZone.getDefault returns a copy, so it is kept.
+    private final TimeZone zone = TimeZone.getDefault();
+
+    public RowOutput(Writer out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param out The Writer that full buffers are written to
+     * @param bufferSize The number of characters buffered between writes
+     */
+    public RowOutput(Writer out, int bufferSize) {
+        this.out = out;
+        this.buffer = new char[Math.max(bufferSize, MAX_LONG_LENGTH)];
+    }
+
+    public RowOutput append(char c) {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = c;
+        return this;
+    }
+
+    public RowOutput append(String s) {
+        int length = s.length();
+        int offset = 0;
+        while (offset < length) {
+            if (position == buffer.length) {
+                drain();
+            }
+            int count = Math.min(length - offset, buffer.length - position);
+            s.getChars(offset, offset + count, buffer, position);
+            position += count;
+            offset += count;
+        }
+        return this;
+    }
+
+    public RowOutput append(CharSequence s) {
+        int length = s.length();
+        int offset = 0;
+        while (offset < length) {
+            if (position == buffer.length) {
+                drain();
+            }
+            int count = Math.min(length - offset, buffer.length - position);
+            for (int i = 0; i < count; i++) {
+                buffer[position + i] = s.charAt(offset + i);
+            }
+            position += count;
+            offset += count;
+        }
+        return this;
+    }
+
+    /**
+     * Writes the decimal digits of the value straight into the buffer
+     */
+    public RowOutput append(long value) {
+        if (buffer.length - position < MAX_LONG_LENGTH) {
+            drain();
+        }
+        if (value == Long.MIN_VALUE) {
+            return append("-9223372036854775808");
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int end = position + digitCount(value);
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        position = end;
+        return this;
+    }
+
+    /**
+     * Writes the value as Double.toString would, without creating a String
+     */
+    public RowOutput append(double value) {
+        scratch.setLength(0);
+        scratch.append(value);
+        return append(scratch);
+    }
+
+    /**
+     * Writes the timestamp in JDBC escape format, as Timestamp.toString
+     * would, without creating a String. The fields are worked out from the
+     * epoch time in the default time zone, using the Gregorian calendar
+     * throughout, so dates before 1583 can differ from toString's.
+     */
+    public RowOutput append(Timestamp value) {
+        long millis = value.getTime();
+        long local = millis + zone.getOffset(millis);
+        long days = Math.floorDiv(local, MILLIS_PER_DAY);
+        int millisOfDay = (int) Math.floorMod(local, MILLIS_PER_DAY);
+
+        // Converts days since 1970-01-01 to a date, with years starting on March 1st so leap days come last
+        long shifted = days + 719468;
+        long era = Math.floorDiv(shifted, 146097);
+        int dayOfEra = (int) (shifted - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int monthFromMarch = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * monthFromMarch + 2) / 5 + 1;
+        int month = monthFromMarch < 10 ? monthFromMarch + 3 : monthFromMarch - 9;
+        long year = era * 400 + yearOfEra + (month <= 2 ? 1 : 0);
+
+        appendPadded(year, 4).append('-');
+        appendPadded(month, 2).append('-');
+        appendPadded(day, 2).append(' ');
+        appendPadded(millisOfDay / 3_600_000, 2).append(':');
+        appendPadded(millisOfDay / 60_000 % 60, 2).append(':');
+        appendPadded(millisOfDay / 1000 % 60, 2).append('.');
+        int nanos = value.getNanos();
+        if (nanos == 0) {
+            return append('0');
+        }
+        // Nanoseconds are written as a fraction without its trailing zeros
+        int digits = 9;
+        while (nanos % 10 == 0) {
+            nanos /= 10;
+            digits--;
+        }
+        return appendPadded(nanos, digits);
+    }
+
+    /**
+     * Writes the buffered characters to the Writer, and flushes it
+     */
+    @Override
+    public void flush() throws IOException {
+        writeBuffer();
+        out.flush();
+    }
+
+    /**
+     * Drops the characters buffered since the last write, such as a row
+     * that failed part way through being rendered
+     */
+    public void discard() {
+        position = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            writeBuffer();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    /**
+     * Empties a full buffer in the middle of a row. The append methods are
+     * called from FieldVisitors, which cannot throw IOException, so a
+     * failed write is rethrown unchecked and unwrapped by the RowWriters.
+     */
+    private void drain() {
+        try {
+            writeBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private RowOutput appendPadded(long value, int width) {
+        for (int i = digitCount(value); i < width; i++) {
+            append('0');
+        }
+        return append(value);
+    }
+
+    private static int digitCount(long value) {
+        int count = 1;
+        while (value >= 10) {
+            value /= 10;
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * An interface for writers that stream query results into a RowOutput
+ * one row at a time, so that large results never need to be held in
+ * memory as text.
+ */
+
+package cs1530.dbdemo;
+
+import java.io.Flushable;
+import java.io.IOException;
+
+public interface RowWriter extends Flushable {
+    /**
+     * Marks the start of the next query's results. The rows after it may be
+     * of a different row class than the rows before it.
+     */
+    void beginResult() throws IOException;
+
+    void writeRow(RowInterface row) throws IOException;
+
+    /**
+     * Marks the end of a query's results
+     */
+    default void endResult() throws IOException {
+    }
+
+    /**
+     * @param format The name of the format: table, csv or jsonl
+     * @param out The output the rows are rendered into
+     * @return A writer for the format
+     * @throws IllegalArgumentException If the format is not supported
+     */
+    static RowWriter forFormat(String format, RowOutput out) {
+        return switch (format) {
+            case "table" -> new TableRowWriter(out);
+            case "csv" -> new CsvRowWriter(out);
+            case "jsonl" -> new JsonLinesRowWriter(out);
+            default -> throw new IllegalArgumentException("Unknown output format " + format + ", expected table, csv or jsonl");
+        };
+    }
+}
@@ -0,0 +1,229 @@
+/**
+ * A helper class for aggregate sales queries over the Receipt and
+ * Coffee example tables. The grouping and the SUM(quantity * price)
+ * are done by H2 with a join, so only one summary row per group is
+ * returned instead of every matching receipt.
+ *
+ * The rollup methods read the same totals from SALES_DAILY_ROLLUP, which
+ * is kept up to date by every receipt insert, so their cost depends on the
+ * number of days, stores and coffees rather than the number of receipts.
+ */
+
+package cs1530.dbdemo;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SalesQueryHelper {
+    private static final int QUERY_TIMEOUT = 30;
+    // Map a row of storeNumber, receipt count, units sold and revenue
+    private static final RowMapper<SalesSummary> STORE_SUMMARY = rs -> new SalesSummary.ByStore(rs.getInt(1),
+            rs.getLong(2), rs.getLong(3), rs.getBigDecimal(4));
+    // Map a row of coffeeID, coffee name, receipt count, units sold and revenue
+    private static final RowMapper<SalesSummary> COFFEE_SUMMARY = rs -> new SalesSummary.ByCoffee(rs.getInt(1),
+            rs.getString(2), rs.getLong(3), rs.getLong(4), rs.getBigDecimal(5));
+    // Map a row of the bucket's start, receipt count, units sold and revenue
+    private static final RowMapper<SalesSummary> TIME_BUCKET_SUMMARY = rs -> new SalesSummary.ByTimeBucket(rs.getTimestamp(1),
+            rs.getLong(2), rs.getLong(3), rs.getBigDecimal(4));
+    private ConnectionPool connectionPool;
+
+    /**
+     * The units of time that sales can be grouped into. The names match
+     * the units accepted by H2's DATE_TRUNC function.
+     */
+    public enum TimeBucket {
+        HOUR,
+        DAY,
+        MONTH
+    }
+
+    /**
+     * @param pool The connection pool that queries borrow their database connections from
+     */
+    public SalesQueryHelper(ConnectionPool pool) {
+        this.connectionPool = pool;
+    }
+
+    /**
+     * A helper function for totalling the sales of every store
+     *
+     * @return One SalesSummary per storeNumber, keyed by the storeNumber
+     */
+    protected List<RowInterface> salesByStore() {
+        return querySummaries("sales.salesByStore", "SELECT r.storeNumber, COUNT(*), SUM(r.quantity), SUM(r.quantity * c.price) " +
+                "FROM RECEIPT r JOIN COFFEE c ON r.coffeeID = c.coffeeID " +
+                "GROUP BY r.storeNumber " +
+                "ORDER BY r.storeNumber", STORE_SUMMARY);
+    }
+
+    /**
+     * A helper function for totalling the sales of every coffee
+     *
+     * @return One SalesSummary per coffee, keyed by the coffeeID and name
+     */
+    protected List<RowInterface> salesByCoffee() {
+        return querySummaries("sales.salesByCoffee", "SELECT c.coffeeID, c.name, COUNT(*), SUM(r.quantity), SUM(r.quantity * c.price) " +
+                "FROM RECEIPT r JOIN COFFEE c ON r.coffeeID = c.coffeeID " +
+                "GROUP BY c.coffeeID, c.name " +
+                "ORDER BY c.coffeeID", COFFEE_SUMMARY);
+    }
+
+    /**
+     * A helper function for totalling sales per hour, day or month within
+     * a date range
+     *
+     * @param bucket The unit of time to group sales into
+     * @param lowerBound the lower bound (inclusive) for the date range
+     * @param upperBound the upper bound (inclusive) for the date range
+     * @return One SalesSummary per time bucket with sales, keyed by the start of the bucket
+     */
+    protected List<RowInterface> salesByTimeBucket(TimeBucket bucket, Date lowerBound, Date upperBound) {
+        // Only the partitions for the months in the range are read, as in ReceiptQueryHelper.findReceiptInDateRange
+        List<String> overlapping;
+        try {
+            overlapping = connectionPool.getReceiptPartitions().overlapping(lowerBound, upperBound);
+        } catch (SQLException e) {
+            handleError(e);
+            return new ArrayList<>();
+        }
+        if (overlapping.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Date[] bounds = new Date[2 * overlapping.size()];
+        for (int i = 0; i < overlapping.size(); i++) {
+            bounds[2 * i] = lowerBound;
+            bounds[2 * i + 1] = upperBound;
+        }
+        // The bucket name comes from the enum rather than user input, so it is safe to concatenate
+        String truncated = "DATE_TRUNC(" + bucket.name() + ", r.timeOfPurchase)";
+        return querySummaries("sales.salesBy" + bucket, "SELECT " + truncated + ", COUNT(*), SUM(r.quantity), SUM(r.quantity * c.price) " +
+                "FROM (" + ReceiptPartitions.unionOf(overlapping, "SELECT timeOfPurchase, coffeeID, quantity FROM %s " +
+                "WHERE timeOfPurchase >= ? AND timeOfPurchase <= ?") + ") r " +
+                "JOIN COFFEE c ON r.coffeeID = c.coffeeID " +
+                "GROUP BY " + truncated + " " +
+                "ORDER BY " + truncated, TIME_BUCKET_SUMMARY, bounds);
+    }
+
+    /**
+     * A helper function for totalling the sales of every store from the daily rollup
+     *
+     * @return One SalesSummary per storeNumber, keyed by the storeNumber
+     */
+    protected List<RowInterface> rollupSalesByStore() {
+        return querySummaries("sales.rollupSalesByStore", "SELECT storeNumber, SUM(receiptCount), SUM(units), SUM(revenue) " +
+                "FROM SALES_DAILY_ROLLUP " +
+                "GROUP BY storeNumber " +
+                "ORDER BY storeNumber", STORE_SUMMARY);
+    }
+
+    /**
+     * A helper function for totalling the sales of every coffee from the daily rollup
+     *
+     * @return One SalesSummary per coffee, keyed by the coffeeID and name
+     */
+    protected List<RowInterface> rollupSalesByCoffee() {
+        return querySummaries("sales.rollupSalesByCoffee", "SELECT c.coffeeID, c.name, SUM(s.receiptCount), SUM(s.units), SUM(s.revenue) " +
+                "FROM SALES_DAILY_ROLLUP s JOIN COFFEE c ON s.coffeeID = c.coffeeID " +
+                "GROUP BY c.coffeeID, c.name " +
+                "ORDER BY c.coffeeID", COFFEE_SUMMARY);
+    }
+
+    /**
+     * A helper function for totalling sales per day or month within a date
+     * range from the daily rollup. The rollup holds whole days, so the range
+     * includes all of the upper bound's sales.
+     *
+     * @param bucket The unit of time to group sales into, DAY or MONTH
+     * @param lowerBound the lower bound (inclusive) for the date range
+     * @param upperBound the upper bound (inclusive) for the date range
+     * @return One SalesSummary per time bucket with sales, keyed by the start of the bucket
+     * @throws IllegalArgumentException If the bucket is HOUR, which is finer than the rollup
+     */
+    protected List<RowInterface> rollupSalesByTimeBucket(TimeBucket bucket, Date lowerBound, Date upperBound) {
+        if (bucket == TimeBucket.HOUR) {
+            throw new IllegalArgumentException("The daily rollup cannot be grouped by " + bucket);
+        }
+        String truncated = bucket == TimeBucket.DAY ? "saleDate" : "DATE_TRUNC(" + bucket.name() + ", saleDate)";
+        return querySummaries("sales.rollupSalesBy" + bucket, "SELECT " + truncated + ", SUM(receiptCount), SUM(units), SUM(revenue) " +
+                "FROM SALES_DAILY_ROLLUP " +
+                "WHERE saleDate >= ? AND saleDate <= ? " +
+                "GROUP BY " + truncated + " " +
+                "ORDER BY " + truncated, TIME_BUCKET_SUMMARY, lowerBound, upperBound);
+    }
+
+    /**
+     * Recomputes the daily rollup from every receipt, in a single transaction.
+     * The rollup is maintained on insert, so this is only needed if it has
+     * drifted, for example after receipts were changed with plain SQL. All
+     * revenue is repriced at the coffees' current prices.
+     *
+     * @return true if the rollup was rebuilt
+     */
+    protected boolean rebuildDailyRollup() {
+        QueryTimer timer = QueryMetrics.start("sales.rebuildDailyRollup");
+        try (Connection conn = connectionPool.getConnection();
+             Statement st = conn.createStatement()) {
+            st.setQueryTimeout(QUERY_TIMEOUT);
+            conn.setAutoCommit(false);
+            try {
+                SalesRollup.rebuild(st);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            timer.fail(e);
+            handleError(e);
+            return false;
+        }
+        timer.stop(0);
+        return true;
+    }
+
+    /**
+     * Runs an aggregate query whose columns are the group key, receipt count,
+     * units sold and revenue. The mapper reads the group key with its own SQL type.
+     *
+     * @param bounds The dates bound to the query's parameters in order, if it has any
+     */
+    private List<RowInterface> querySummaries(String queryName, String sql, RowMapper<SalesSummary> summaryMapper,
+                                              Date... bounds) {
+        QueryTimer timer = QueryMetrics.start(queryName);
+        List<RowInterface> summaryList = new ArrayList<>();
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement st = conn.prepareStatement(sql)) {
+            st.setQueryTimeout(QUERY_TIMEOUT);
+            for (int i = 0; i < bounds.length; i++) {
+                st.setDate(i + 1, bounds[i]);
+            }
+            ResultSet rs = st.executeQuery();
+            while (rs.next()) {
+                summaryList.add(summaryMapper.mapRow(rs));
+            }
+        } catch (SQLException e) {
+            timer.fail(e);
+            handleError(e);
+        }
+        timer.stop(summaryList.size());
+        return summaryList;
+    }
+
+    /**
+     * A helper function for handling errors that prints the error message,
+     * SQL State, and the SQL Code for the error
+     * @param err The SQLException being handled
+     */
+    private static void handleError(SQLException err) {
+        System.err.println("The following error occurred while executing the query/update:");
+        System.err.println("Message = " + err.getMessage());
+        System.err.println("SQLState = " + err.getSQLState());
+        System.err.println("SQL Code = " + err.getErrorCode());
+    }
+}
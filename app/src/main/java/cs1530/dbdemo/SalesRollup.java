@@ -0,0 +1,137 @@
+/**
+ * Maintains SALES_DAILY_ROLLUP, which holds the receipt count, units sold
+ * and revenue of every (day, storeNumber, coffeeID) with sales. Inserts
+ * add their totals to it in the same transaction as the receipts, so
+ * dashboards can read small daily totals instead of aggregating RECEIPT.
+ *
+ * RECEIPT does not record the price paid, so inserts price revenue at
+ * the coffee's price when they run, and rebuild reprices every receipt
+ * at the current price. After a price change the rollup's revenue can
+ * therefore differ from the same totals computed over RECEIPT until it
+ * is rebuilt. Receipts without a timeOfPurchase belong to no day and are
+ * left out.
+ */
+
+package cs1530.dbdemo;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+final class SalesRollup {
+    private static final int QUERY_TIMEOUT = 30;
+
+    private SalesRollup() {
+    }
+
+    /**
+     * The rollup key for one day's sales of a coffee at a store
+     */
+    private record DayKey(Date saleDate, int storeNumber, int coffeeID) {
+    }
+
+    /**
+     * Creates the rollup table and fills it from the receipts already in
+     * the database. Used as a schema migration, so it is safe to re-run.
+     *
+     * @param st A statement on the connection running the migration
+     * @throws SQLException If the table cannot be created or filled
+     */
+    static void createTable(Statement st) throws SQLException {
+        st.executeUpdate("CREATE TABLE IF NOT EXISTS SALES_DAILY_ROLLUP (saleDate date, " +
+                "storeNumber integer," +
+                "coffeeID integer," +
+                "receiptCount bigint," +
+                "units bigint," +
+                "revenue numeric(20,2)," +
+                "PRIMARY KEY (saleDate, storeNumber, coffeeID));");
+        // The primary key serves date ranges, and this index serves per-store dashboards
+        st.executeUpdate("CREATE INDEX IF NOT EXISTS SALES_DAILY_ROLLUP_STORE_IDX ON SALES_DAILY_ROLLUP (storeNumber, saleDate);");
+        rebuild(st);
+    }
+
+    /**
+     * Replaces the rollup's contents with totals computed from every receipt,
+     * with revenue at the coffees' current prices. Receipts inserted on
+     * other connections while this runs may be missed, so it is best run
+     * while nothing else is writing.
+     *
+     * @param st A statement on a connection, which is committed by the caller if it is not in auto-commit mode
+     * @throws SQLException If the rollup cannot be rebuilt
+     */
+    static void rebuild(Statement st) throws SQLException {
+        st.executeUpdate("DELETE FROM SALES_DAILY_ROLLUP;");
+        st.executeUpdate("INSERT INTO SALES_DAILY_ROLLUP " +
+                "SELECT CAST(r.timeOfPurchase AS DATE), r.storeNumber, r.coffeeID, COUNT(*), SUM(r.quantity), SUM(r.quantity * c.price) " +
+                "FROM RECEIPT r JOIN COFFEE c ON r.coffeeID = c.coffeeID " +
+                "WHERE r.timeOfPurchase IS NOT NULL AND r.storeNumber IS NOT NULL " +
+                "GROUP BY CAST(r.timeOfPurchase AS DATE), r.storeNumber, r.coffeeID;");
+    }
+
+    /**
+     * Adds newly inserted receipts to the rollup. The receipts are totalled
+     * per (day, storeNumber, coffeeID) first, so each day's row is updated
+     * once per call however many of its receipts there are.
+     *
+     * @param conn The connection the receipts were inserted on; the caller commits both together
+     * @param receipts The receipts that were inserted
+     * @throws SQLException If the rollup cannot be updated
+     */
+    static void addReceipts(Connection conn, List<Receipt> receipts) throws SQLException {
+        // Each value holds {receiptCount, units}
+        Map<DayKey, long[]> totals = new LinkedHashMap<>();
+        for (Receipt receipt : receipts) {
+            if (receipt.getTimeOfPurchase() == null) {
+                continue;
+            }
+            Date saleDate = Date.valueOf(receipt.getTimeOfPurchase().toLocalDateTime().toLocalDate());
+            long[] total = totals.computeIfAbsent(new DayKey(saleDate, receipt.getStoreNumber(), receipt.getCoffeeID()),
+                    key -> new long[2]);
+            total[0]++;
+            total[1] += receipt.getQuantity();
+        }
+        if (totals.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement st = conn.prepareStatement("MERGE INTO SALES_DAILY_ROLLUP t " +
+                "USING (SELECT CAST(? AS DATE) AS saleDate, CAST(? AS INTEGER) AS storeNumber, c.coffeeID, " +
+                "CAST(? AS BIGINT) AS receiptCount, CAST(? AS BIGINT) AS units, CAST(? AS BIGINT) * c.price AS revenue " +
+                "FROM COFFEE c WHERE c.coffeeID = ?) s " +
+                "ON t.saleDate = s.saleDate AND t.storeNumber = s.storeNumber AND t.coffeeID = s.coffeeID " +
+                "WHEN MATCHED THEN UPDATE SET t.receiptCount = t.receiptCount + s.receiptCount, " +
+                "t.units = t.units + s.units, t.revenue = t.revenue + s.revenue " +
+                "WHEN NOT MATCHED THEN INSERT (saleDate, storeNumber, coffeeID, receiptCount, units, revenue) " +
+                "VALUES (s.saleDate, s.storeNumber, s.coffeeID, s.receiptCount, s.units, s.revenue)")) {
+            st.setQueryTimeout(QUERY_TIMEOUT);
+            for (Map.Entry<DayKey, long[]> entry : totals.entrySet()) {
+                DayKey key = entry.getKey();
+                long[] total = entry.getValue();
+                st.setDate(1, key.saleDate());
+                st.setInt(2, key.storeNumber());
+                st.setLong(3, total[0]);
+                st.setLong(4, total[1]);
+                st.setLong(5, total[1]);
+                st.setInt(6, key.coffeeID());
+                st.addBatch();
+            }
+            st.executeBatch();
+        }
+    }
+
+    /**
+     * Removes a month's totals, for when its receipt partition is dropped
+     *
+     * @param st A statement on the connection dropping the partition
+     * @throws SQLException If the totals cannot be removed
+     */
+    static void removeMonth(Statement st, YearMonth month) throws SQLException {
+        st.executeUpdate("DELETE FROM SALES_DAILY_ROLLUP WHERE saleDate >= DATE '" + month.atDay(1) + "' " +
+                "AND saleDate < DATE '" + month.plusMonths(1).atDay(1) + "';");
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * A helper class for representing a row of an aggregated sales
+ * query, such as the total sales of one store or of one day.
+ * The class allows for the transformation of ResultSet to
+ * an instance of a Java class with getters
+ *
+ * Each kind of grouping has its own subclass holding the group key with
+ * its SQL type, such as an int storeNumber or the Timestamp a time bucket
+ * starts at, rather than the key converted to a String.
+ */
+
+package cs1530.dbdemo;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+public abstract class SalesSummary implements RowInterface {
+    private final long receiptCount;
+    private final long unitsSold;
+    private final BigDecimal revenue;
+
+    protected SalesSummary(long receiptCount, long unitsSold, BigDecimal revenue) {
+        this.receiptCount = receiptCount;
+        this.unitsSold = unitsSold;
+        this.revenue = revenue;
+    }
+
+    public long getReceiptCount() {
+        return receiptCount;
+    }
+
+    public long getUnitsSold() {
+        return unitsSold;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    /**
+     * Visits the group key's fields
+     */
+    protected abstract void visitKey(FieldVisitor visitor);
+
+    /**
+     * @return The group key's fields as name=value pairs, for toString
+     */
+    protected abstract String describeKey();
+
+    @Override
+    public void visitFields(FieldVisitor visitor) {
+        visitKey(visitor);
+        visitor.visitInt("receiptCount", receiptCount);
+        visitor.visitInt("unitsSold", unitsSold);
+        visitor.visitDecimal("revenue", revenue);
+    }
+
+    @Override
+    public String toString() {
+        return "{" + describeKey() +
+                ", receiptCount=" + receiptCount +
+                ", unitsSold=" + unitsSold +
+                ", revenue=" + revenue +
+                '}';
+    }
+
+    /**
+     * The sales of one store
+     */
+    public static final class ByStore extends SalesSummary {
+        private final int storeNumber;
+
+        public ByStore(int storeNumber, long receiptCount, long unitsSold, BigDecimal revenue) {
+            super(receiptCount, unitsSold, revenue);
+            this.storeNumber = storeNumber;
+        }
+
+        public int getStoreNumber() {
+            return storeNumber;
+        }
+
+        @Override
+        protected void visitKey(FieldVisitor visitor) {
+            visitor.visitInt("storeNumber", storeNumber);
+        }
+
+        @Override
+        protected String describeKey() {
+            return "storeNumber=" + storeNumber;
+        }
+    }
+
+    /**
+     * The sales of one coffee
+     */
+    public static final class ByCoffee extends SalesSummary {
+        private final int coffeeID;
+        private final String name;
+
+        public ByCoffee(int coffeeID, String name, long receiptCount, long unitsSold, BigDecimal revenue) {
+            super(receiptCount, unitsSold, revenue);
+            this.coffeeID = coffeeID;
+            this.name = name;
+        }
+
+        public int getCoffeeID() {
+            return coffeeID;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        protected void visitKey(FieldVisitor visitor) {
+            visitor.visitInt("coffeeID", coffeeID);
+            visitor.visitString("name", name);
+        }
+
+        @Override
+        protected String describeKey() {
+            return "coffeeID=" + coffeeID + ", name='" + name + '\'';
+        }
+    }
+
+    /**
+     * The sales within one hour, day or month
+     */
+    public static final class ByTimeBucket extends SalesSummary {
+        private final Timestamp bucketStart;
+
+        public ByTimeBucket(Timestamp bucketStart, long receiptCount, long unitsSold, BigDecimal revenue) {
+            super(receiptCount, unitsSold, revenue);
+            this.bucketStart = bucketStart;
+        }
+
+        /**
+         * @return The start of the hour, day or month
+         */
+        public Timestamp getBucketStart() {
+            return bucketStart;
+        }
+
+        @Override
+        protected void visitKey(FieldVisitor visitor) {
+            visitor.visitTimestamp("bucketStart", bucketStart);
+        }
+
+        @Override
+        protected String describeKey() {
+            return "bucketStart=" + bucketStart;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/**
+ * A helper class for creating and upgrading the example tables. The
+ * schema is described by an ordered list of numbered migrations, and the
+ * SCHEMA_VERSION table records which of them a database has already had
+ * applied. Starting against an up to date database only costs a lookup of
+ * the current version, however much data the tables hold.
+ *
+ * H2 commits after every DDL statement, so a migration cannot be rolled
+ * back if it fails part way. Migrations are therefore written with
+ * IF NOT EXISTS and MERGE so that re-running one after a failure is safe,
+ * and the version is only recorded once all of its statements have succeeded.
+ */
+
+package cs1530.dbdemo;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+
+public class SchemaManager {
+    private static final int QUERY_TIMEOUT = 30;
+    private ConnectionPool connectionPool;
+
+    /**
+     * The work done by a migration, run with a statement on the migrating connection
+     */
+    @FunctionalInterface
+    private interface MigrationStep {
+        void apply(Statement st) throws SQLException;
+    }
+
+    /**
+     * One step in the evolution of the schema
+     *
+     * @param version The version the schema is at once the migration is applied
+     * @param description A short description recorded in SCHEMA_VERSION
+     * @param step The work that applies the migration
+     */
+    private record Migration(int version, String description, MigrationStep step) {
+    }
+
+    /**
+     * A migration step that runs DDL statements in order
+     */
+    private static MigrationStep statements(String... sql) {
+        return st -> {
+            for (String statement : sql) {
+                st.executeUpdate(statement);
+            }
+        };
+    }
+
+    /**
+     * The migrations in version order. New migrations are only ever appended,
+     * since databases that already have the earlier ones will skip them.
+     */
+    private static final List<Migration> MIGRATIONS = List.of(
+            // The indexes are created before the foreign keys so that H2 reuses them instead of adding its own.
+            // Note that numeric(5, 2) has 5 significant digits, of which 2 appear after the decimal point,
+            // and that timestamp is both a date and time.
+            new Migration(1, "Create the STORE, COFFEE and RECEIPT tables", statements(
+                    "CREATE TABLE IF NOT EXISTS STORE (storeNumber integer PRIMARY KEY, " +
+                            "name varchar(50)," +
+                            "storeType varchar(50)," +
+                            "street varchar(50)," +
+                            "city varchar(50)," +
+                            "state varchar(20));",
+                    "CREATE INDEX IF NOT EXISTS STORE_TYPE_IDX ON STORE (storeType);",
+                    "CREATE INDEX IF NOT EXISTS STORE_CITY_STATE_IDX ON STORE (city, state);",
+                    "CREATE TABLE IF NOT EXISTS COFFEE (coffeeID integer PRIMARY KEY, " +
+                            "name varchar(50)," +
+                            "intensity integer," +
+                            "price numeric(5,2));",
+                    "CREATE INDEX IF NOT EXISTS COFFEE_NAME_IDX ON COFFEE (name);",
+                    "CREATE INDEX IF NOT EXISTS COFFEE_INTENSITY_IDX ON COFFEE (intensity);",
+                    "CREATE INDEX IF NOT EXISTS COFFEE_PRICE_IDX ON COFFEE (price);",
+                    "CREATE TABLE IF NOT EXISTS RECEIPT (receiptID integer PRIMARY KEY, " +
+                            "storeNumber integer," +
+                            "timeOfPurchase timestamp," +
+                            "coffeeID integer," +
+                            "quantity integer);",
+                    "CREATE INDEX IF NOT EXISTS RECEIPT_STORE_TIME_IDX ON RECEIPT (storeNumber, timeOfPurchase);",
+                    "CREATE INDEX IF NOT EXISTS RECEIPT_COFFEE_IDX ON RECEIPT (coffeeID);",
+                    "CREATE INDEX IF NOT EXISTS RECEIPT_QUANTITY_IDX ON RECEIPT (quantity);",
+                    // receiptID is included so that date range pages can seek on (timeOfPurchase, receiptID)
+                    "CREATE INDEX IF NOT EXISTS RECEIPT_TIME_IDX ON RECEIPT (timeOfPurchase, receiptID);",
+                    "ALTER TABLE RECEIPT ADD CONSTRAINT IF NOT EXISTS RECEIPT_STORE_FK " +
+                            "FOREIGN KEY (storeNumber) REFERENCES STORE(storeNumber);",
+                    "ALTER TABLE RECEIPT ADD CONSTRAINT IF NOT EXISTS RECEIPT_COFFEE_FK " +
+                            "FOREIGN KEY (coffeeID) REFERENCES COFFEE(coffeeID);")),
+            // Moves the receipts into monthly partitions and replaces RECEIPT with a view over them
+            new Migration(2, "Partition RECEIPT by month", ReceiptPartitions::partitionReceiptTable),
+            // Daily sales totals maintained by every receipt insert
+            new Migration(3, "Create the SALES_DAILY_ROLLUP table", SalesRollup::createTable)
+    );
+
+    /**
+     * @param pool The connection pool that migrations borrow their database connection from
+     */
+    public SchemaManager(ConnectionPool pool) {
+        this.connectionPool = pool;
+    }
+
+    /**
+     * Applies every migration that the database has not had yet
+     *
+     * @return The schema version before migrating, which is 0 for a new database
+     * @throws SQLException If a migration fails; the versions before it remain applied
+     */
+    public int migrate() throws SQLException {
+        try (Connection conn = connectionPool.getConnection();
+             Statement st = conn.createStatement()) {
+            st.setQueryTimeout(QUERY_TIMEOUT); // set timeout to 30 seconds
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS SCHEMA_VERSION (version integer PRIMARY KEY, " +
+                    "description varchar(200)," +
+                    "appliedAt timestamp DEFAULT CURRENT_TIMESTAMP);");
+            int startingVersion = currentVersion(st);
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version() <= startingVersion) {
+                    continue;
+                }
+                migration.step().apply(st);
+                try (PreparedStatement record = conn.prepareStatement(
+                        "INSERT INTO SCHEMA_VERSION (version, description) VALUES (?, ?)")) {
+                    record.setQueryTimeout(QUERY_TIMEOUT);
+                    record.setInt(1, migration.version());
+                    record.setString(2, migration.description());
+                    record.executeUpdate();
+                }
+            }
+            // Migrations create partitions without going through the pool's partition list
+            connectionPool.getReceiptPartitions().invalidate();
+            return startingVersion;
+        }
+    }
+
+    /**
+     * @return The version of the newest migration applied to the database, or 0 if there is none
+     * @throws SQLException If the version cannot be read, for example before migrate has been called
+     */
+    public int getVersion() throws SQLException {
+        try (Connection conn = connectionPool.getConnection();
+             Statement st = conn.createStatement()) {
+            st.setQueryTimeout(QUERY_TIMEOUT);
+            return currentVersion(st);
+        }
+    }
+
+    /**
+     * @return The version of the newest migration this build knows about
+     */
+    public static int getLatestVersion() {
+        return MIGRATIONS.getLast().version();
+    }
+
+    /**
+     * Inserts the sample Stores, Coffees and Receipts. Seeding a database
+     * that already has them is harmless: sample Stores and Coffees are merged
+     * on their primary key, restoring any that were edited, and sample
+     * Receipts that already exist are kept as they are.
+     *
+     * @throws SQLException If the sample data cannot be written
+     */
+    public void seed() throws SQLException {
+        try (Connection conn = connectionPool.getConnection();
+             Statement st = conn.createStatement()) {
+            st.setQueryTimeout(QUERY_TIMEOUT); // set timeout to 30 seconds
+            st.executeUpdate("MERGE INTO STORE KEY (storeNumber) VALUES " +
+                    "(1, 'Test Store', 'sitting', 'Forbes', 'Pittsburgh', 'Pennsylvania')," +
+                    "(2, 'Test Store2', 'sitting', 'Fifth', 'Pittsburgh', 'Pennsylvania')," +
+                    "(3, 'Test Store 3', 'drive-through', 'Lincoln', 'Seattle', 'Washington')," +
+                    "(4, 'Test Store 4', 'digital', 'Pike', 'Los Angeles', 'California')," +
+                    "(5, 'Test Store 5', 'digital', 'Park Place', 'Hollywood', 'California')," +
+                    "(6, 'Test Store 6', 'sitting', 'Madison Square', 'New York City', 'New York')," +
+                    "(7, 'Test Store 7', 'digital', 'Washington Ave', 'New York City', 'New York')," +
+                    "(8, 'Test Store 8', 'drive-through', 'Lincoln Place', 'Albany', 'New York')," +
+                    "(9, 'Test Store 9', 'digital', 'Forbes', 'Pittsburgh', 'Pennsylvania')," +
+                    "(10, 'Test Store 10', 'drive-through', 'Boulevard of the Allies', 'Pittsburgh', 'Pennsylvania');");
+            st.executeUpdate("MERGE INTO COFFEE KEY (coffeeID) VALUES " +
+                    "(1, 'Espresso', 10, 1.45)," +
+                    "(2, 'Latte', 4, 3.65)," +
+                    "(3, 'Drip Coffee', 8, 1.15)," +
+                    "(4, 'Cappuccino', 5, 2.79)," +
+                    "(5, 'Macchiato', 5, 3.30)," +
+                    "(6, 'Cold Brew', 7, 3.10)," +
+                    "(7, 'Hot Chocolate', 1, 1.59)," +
+                    "(8, 'Americano', 7, 2.05)," +
+                    "(9, 'Mocha', 3, 2.65)," +
+                    "(10, 'Frappuccino', 2, 2.89);");
+        } finally {
+            // Cached lookups may hold rows the merge restored, or misses for rows it added
+            connectionPool.invalidateStoreCache();
+            connectionPool.invalidateCoffeeCache();
+        }
+        // RECEIPT is a view over the monthly partitions, so the receipts are routed by the
+        // helper. Receipts that already exist are rejected as duplicates and left as they are.
+        new ReceiptQueryHelper(connectionPool).insertReceipts(List.of(
+                new Receipt(1, 1, Timestamp.valueOf("2024-11-01 10:00:00"), 1, 2),
+                new Receipt(2, 1, Timestamp.valueOf("2024-11-02 10:15:00"), 1, 3),
+                new Receipt(3, 2, Timestamp.valueOf("2024-10-28 09:30:40"), 2, 1),
+                new Receipt(4, 3, Timestamp.valueOf("2024-10-29 11:15:00"), 3, 3),
+                new Receipt(5, 4, Timestamp.valueOf("2024-10-28 08:20:15"), 4, 2),
+                new Receipt(6, 5, Timestamp.valueOf("2024-10-29 09:30:40"), 5, 2),
+                new Receipt(7, 6, Timestamp.valueOf("2024-11-02 12:40:00"), 6, 5),
+                new Receipt(8, 2, Timestamp.valueOf("2024-10-21 09:20:20"), 7, 1),
+                new Receipt(9, 9, Timestamp.valueOf("2024-10-19 11:11:11"), 9, 3),
+                new Receipt(10, 10, Timestamp.valueOf("2024-11-03 06:45:00"), 10, 4)));
+    }
+
+    private static int currentVersion(Statement st) throws SQLException {
+        try (ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(version), 0) FROM SCHEMA_VERSION;")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Logs every query that takes longer than a threshold, with the SQL and
+ * parameters of the statements it ran, its duration and its row count.
+ * The threshold is read from -Ddbdemo.slowQueryMillis at startup and can
+ * be changed with setThresholdMillis; the log is off when it is negative.
+ *
+ * Statements are only traced while the log is on, so it costs nothing
+ * when it is off.
+ */
+
+package cs1530.dbdemo;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class SlowQueryLog {
+    // Set e.g. -Ddbdemo.slowQueryMillis=500 to log queries that take 500 ms or longer
+    private static final String THRESHOLD_PROPERTY = "dbdemo.slowQueryMillis";
+    // The most parameters written per statement, so that large batches do not flood the log
+    private static final int MAX_LOGGED_PARAMETERS = 20;
+
+    private static volatile long thresholdMicros = toMicros(Long.getLong(THRESHOLD_PROPERTY, -1));
+    private static volatile PrintStream out = System.err;
+    private static final LongAdder slowQueryCount = new LongAdder();
+
+    private SlowQueryLog() {
+    }
+
+    /**
+     * @param millis The duration at or above which a query is logged, or a negative value to turn the log off
+     */
+    public static void setThresholdMillis(long millis) {
+        thresholdMicros = toMicros(millis);
+    }
+
+    /**
+     * @param stream The stream slow queries are written to, stderr by default
+     */
+    public static void setOutput(PrintStream stream) {
+        out = stream;
+    }
+
+    public static boolean isEnabled() {
+        return thresholdMicros >= 0;
+    }
+
+    /**
+     * @return The number of slow queries logged so far
+     */
+    public static long getSlowQueryCount() {
+        return slowQueryCount.sum();
+    }
+
+    /**
+     * Logs a finished query if it took at least the threshold
+     *
+     * @param queryName The name of the query, such as "receipt.findAll"
+     * @param statements The statements the query ran, as described by describe
+     * @param micros How long the query took in microseconds
+     * @param rows The number of rows the query returned or wrote
+     * @param failed Whether the query failed with an error
+     */
+    static void record(String queryName, List<String> statements, long micros, long rows, boolean failed) {
+        long threshold = thresholdMicros;
+        if (threshold < 0 || micros < threshold) {
+            return;
+        }
+        slowQueryCount.increment();
+        StringBuilder line = new StringBuilder("Slow query ").append(queryName)
+                .append(String.format(" took %.1f ms", micros / 1000.0))
+                .append(failed ? " and failed" : "")
+                .append(" with ").append(rows).append(" rows");
+        for (String statement : statements) {
+            line.append(System.lineSeparator()).append("    ").append(statement);
+        }
+        out.println(line);
+    }
+
+    /**
+     * Describes an executed statement for the log
+     *
+     * @param sql The statement's SQL
+     * @param parameters The parameters bound to it by index, starting at 1, or null if it has none
+     * @param parameterCount The highest parameter index bound
+     * @param batchSize The number of rows in the batch if it was a batch, otherwise 0
+     */
+    static String describe(String sql, Object[] parameters, int parameterCount, int batchSize) {
+        StringBuilder description = new StringBuilder(sql == null ? "<no SQL>" : sql);
+        if (batchSize > 0) {
+            description.append(" (batch of ").append(batchSize).append(", last row shown)");
+        }
+        if (parameters != null) {
+            description.append(" [");
+            int logged = Math.min(parameterCount, MAX_LOGGED_PARAMETERS);
+            for (int i = 1; i <= logged; i++) {
+                if (i > 1) {
+                    description.append(", ");
+                }
+                Object value = parameters[i];
+                description.append(value instanceof String ? "'" + value + "'" : String.valueOf(value));
+            }
+            if (parameterCount > logged) {
+                description.append(", ...");
+            }
+            description.append(']');
+        }
+        return description.toString();
+    }
+
+    private static long toMicros(long millis) {
+        return millis < 0 ? -1 : millis * 1000;
+    }
+}
@@ -0,0 +1,636 @@
+/**
+ * Exports the Store, Coffee and Receipt data to a directory of compressed
+ * binary files and restores it, so that a large working dataset can be
+ * reloaded after a restart without regenerating it. Every table, and every
+ * receipt partition, is written to and read from its own file on its own
+ * thread.
+ *
+ * Restoring loads each receipt partition with its secondary indexes and
+ * foreign keys dropped and builds them once the rows are in. RECEIPT_KEY
+ * and the daily sales rollup are not in the snapshot, since both are
+ * derived from the receipts and rebuilt after the load.
+ *
+ * Timestamps are stored as the wall-clock time H2 holds, so a snapshot
+ * restores the same times whatever the JVM's time zone is. Nullable
+ * columns are written with a null marker, so nulls are restored as nulls.
+ *
+ * Each file is exported on its own connection, so the snapshot is only
+ * consistent across tables if nothing is writing while it is taken.
+ */
+
+package cs1530.dbdemo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+public class SnapshotManager {
+    private static final int QUERY_TIMEOUT = 30;
+    // Version 1 stored timestamps in the JVM's time zone and version 2 stored
+    // null integers as 0, so files of either are not read
+    private static final int FORMAT_VERSION = 3;
+    // "DBSN", at the start of every table file
+    private static final int MAGIC = 0x4442534E;
+    // Lists the tables and row counts, and is written last so that an interrupted export has none
+    private static final String MANIFEST_FILE = "MANIFEST";
+    private static final String TABLE_FILE_SUFFIX = ".snap";
+    private static final int STREAM_BUFFER_SIZE = 256 * 1024;
+    private static final int FETCH_SIZE = 10_000;
+    private static final int LOAD_BATCH_SIZE = 10_000;
+    // Rows per transaction when restoring, so that undo logs stay small
+    private static final int LOAD_COMMIT_SIZE = 100_000;
+    // Marks a row in a table file; the file ends with END_OF_ROWS
+    private static final byte ROW = 1;
+    private static final byte END_OF_ROWS = 0;
+    // Stands in for a null timeOfPurchase or price
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    // Precede a nullable integer column; NULL_INT is all that is written for a null
+    private static final byte NULL_INT = 0;
+    private static final byte NOT_NULL_INT = 1;
+    // The monthly partitions a manifest may list, such as RECEIPT_P202410
+    private static final Pattern MONTH_PARTITION = Pattern.compile(Pattern.quote(ReceiptPartitions.PARTITION_PREFIX) + "\\d{6}");
+
+    private final ConnectionPool connectionPool;
+    private final ReceiptPartitions partitions;
+    private final int parallelism;
+
+    /**
+     * @param pool The connection pool that exports and restores borrow their connections from
+     * @param parallelism The number of tables exported or restored at once, which should not exceed the pool's size
+     */
+    public SnapshotManager(ConnectionPool pool, int parallelism) {
+        this.connectionPool = pool;
+        this.partitions = pool.getReceiptPartitions();
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Writes every Store, Coffee and Receipt to a snapshot in the directory,
+     * replacing any snapshot already there
+     *
+     * @param directory The directory to write the snapshot to; it is created if needed
+     * @return The number of rows and bytes written and the export throughput
+     * @throws SQLException If a table cannot be read
+     * @throws IOException If a file cannot be written
+     */
+    public SnapshotResult export(Path directory) throws SQLException, IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(MANIFEST_FILE));
+        List<String> tables = new ArrayList<>(List.of("STORE", "COFFEE", ReceiptPartitions.DEFAULT_PARTITION));
+        for (YearMonth month : partitions.getMonths()) {
+            tables.add(ReceiptPartitions.tableName(month));
+        }
+
+        List<Callable<Long>> tasks = new ArrayList<>();
+        for (String table : tables) {
+            tasks.add(() -> exportTable(table, tableFile(directory, table)));
+        }
+        List<Long> rowCounts = runAll(tasks);
+
+        StringBuilder manifest = new StringBuilder();
+        long rows = 0;
+        long bytes = 0;
+        for (int i = 0; i < tables.size(); i++) {
+            manifest.append(tables.get(i)).append(' ').append(rowCounts.get(i)).append('\n');
+            rows += rowCounts.get(i);
+            bytes += Files.size(tableFile(directory, tables.get(i)));
+        }
+        Files.writeString(directory.resolve(MANIFEST_FILE), manifest);
+        return new SnapshotResult(tables.size(), rows, bytes, System.nanoTime() - start);
+    }
+
+    /**
+     * Replaces every Store, Coffee and Receipt in the database with the
+     * contents of a snapshot. The pool's cached STORE and COFFEE lookups
+     * are dropped, but a query running during the restore sees it part way.
+     *
+     * Every file is read through and checked against the manifest before
+     * anything is deleted, so a missing, truncated or corrupt snapshot
+     * leaves the database as it was. The load itself is not one
+     * transaction: the existing rows are deleted first and the snapshot is
+     * committed in chunks, so if the load fails part way, for example on a
+     * full disk, the existing data is lost and the database holds part of
+     * the snapshot. Restore the snapshot again once the cause is fixed.
+     *
+     * @param directory The directory holding a snapshot written by export
+     * @return The number of rows and bytes read and the restore throughput
+     * @throws SQLException If the database cannot be cleared or loaded
+     * @throws IOException If the snapshot is missing, incomplete or unreadable
+     */
+    public SnapshotResult restore(Path directory) throws SQLException, IOException {
+        long start = System.nanoTime();
+        Map<String, Long> manifest = readManifest(directory);
+        List<YearMonth> months = new ArrayList<>();
+        List<Callable<Long>> checks = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : manifest.entrySet()) {
+            String table = entry.getKey();
+            if (MONTH_PARTITION.matcher(table).matches()) {
+                months.add(ReceiptPartitions.monthOfKey(monthKeyOf(table)));
+            }
+            checks.add(() -> checkTable(table, tableFile(directory, table), entry.getValue()));
+        }
+        runAll(checks);
+
+        long rows;
+        try {
+            // The partitions are created up front, since DDL commits and cannot run alongside the loads
+            try (Connection conn = connectionPool.getConnection();
+                 Statement st = conn.createStatement()) {
+                st.setQueryTimeout(QUERY_TIMEOUT);
+                for (YearMonth month : partitions.getMonths()) {
+                    partitions.drop(conn, month);
+                }
+                st.executeUpdate("DELETE FROM RECEIPT_KEY;");
+                st.executeUpdate("DELETE FROM " + ReceiptPartitions.DEFAULT_PARTITION + ";");
+                st.executeUpdate("DELETE FROM SALES_DAILY_ROLLUP;");
+                st.executeUpdate("DELETE FROM COFFEE;");
+                st.executeUpdate("DELETE FROM STORE;");
+                partitions.ensure(conn, months);
+            }
+
+            // Stores and coffees are loaded before the receipts that reference them
+            List<Callable<Long>> referenced = new ArrayList<>();
+            referenced.add(() -> restoreTable("STORE", tableFile(directory, "STORE"), manifest.get("STORE")));
+            referenced.add(() -> restoreTable("COFFEE", tableFile(directory, "COFFEE"), manifest.get("COFFEE")));
+            rows = runAll(referenced).stream().mapToLong(Long::longValue).sum();
+        } finally {
+            // Cached lookups of the replaced stores and coffees are stale whether or not the load succeeded
+            connectionPool.invalidateStoreCache();
+            connectionPool.invalidateCoffeeCache();
+        }
+        List<Callable<Long>> receipts = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : manifest.entrySet()) {
+            if (entry.getKey().startsWith(ReceiptPartitions.PARTITION_PREFIX)) {
+                receipts.add(() -> restoreTable(entry.getKey(), tableFile(directory, entry.getKey()), entry.getValue()));
+            }
+        }
+        rows += runAll(receipts).stream().mapToLong(Long::longValue).sum();
+
+        try (Connection conn = connectionPool.getConnection();
+             Statement st = conn.createStatement()) {
+            st.setQueryTimeout(0); // rebuilding the rollup scans every receipt
+            SalesRollup.rebuild(st);
+        }
+
+        long bytes = 0;
+        for (String table : manifest.keySet()) {
+            bytes += Files.size(tableFile(directory, table));
+        }
+        return new SnapshotResult(manifest.size(), rows, bytes, System.nanoTime() - start);
+    }
+
+    /**
+     * Streams one table to its file
+     *
+     * @return The number of rows written
+     */
+    private long exportTable(String table, Path file) throws SQLException, IOException {
+        long rows = 0;
+        try (Connection conn = connectionPool.getConnection();
+             DataOutputStream out = openForWrite(file)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(table);
+            setLazyExecution(conn, true);
+            try (Statement st = conn.createStatement()) {
+                st.setQueryTimeout(0); // a large partition can take longer than the usual timeout
+                st.setFetchSize(FETCH_SIZE);
+                ResultSet rs = st.executeQuery("SELECT * FROM " + table);
+                while (rs.next()) {
+                    out.writeByte(ROW);
+                    writeRow(table, rs, out);
+                    rows++;
+                }
+            } finally {
+                setLazyExecution(conn, false);
+            }
+            out.writeByte(END_OF_ROWS);
+        }
+        return rows;
+    }
+
+    private static void writeRow(String table, ResultSet rs, DataOutputStream out) throws SQLException, IOException {
+        switch (table) {
+            case "STORE" -> {
+                out.writeInt(rs.getInt("storeNumber"));
+                writeString(out, rs.getString("name"));
+                writeString(out, rs.getString("storeType"));
+                writeString(out, rs.getString("street"));
+                writeString(out, rs.getString("city"));
+                writeString(out, rs.getString("state"));
+            }
+            case "COFFEE" -> {
+                out.writeInt(rs.getInt("coffeeID"));
+                writeString(out, rs.getString("name"));
+                writeNullableInt(out, rs, "intensity");
+                BigDecimal price = rs.getBigDecimal("price");
+                out.writeLong(price == null ? NULL_LONG : CompactCoffee.toCents(price));
+            }
+            default -> {
+                out.writeInt(rs.getInt("receiptID"));
+                writeNullableInt(out, rs, "storeNumber");
+                writeTimestamp(out, rs.getObject("timeOfPurchase", LocalDateTime.class));
+                writeNullableInt(out, rs, "coffeeID");
+                writeNullableInt(out, rs, "quantity");
+            }
+        }
+    }
+
+    /**
+     * Reads a table's file through without loading it, to check that it is
+     * a complete snapshot of the table holding the rows the manifest lists
+     *
+     * @return The number of rows in the file
+     */
+    private static long checkTable(String table, Path file, long expectedRows) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            throw new IOException(file + " is missing from the snapshot");
+        }
+        long rows = 0;
+        try (DataInputStream in = openForRead(file)) {
+            readHeader(table, file, in);
+            byte marker;
+            while ((marker = in.readByte()) == ROW) {
+                skipRow(table, in);
+                rows++;
+            }
+            if (marker != END_OF_ROWS) {
+                throw new IOException(file + " is corrupt after row " + rows);
+            }
+        } catch (EOFException e) {
+            throw new IOException(file + " is truncated", e);
+        }
+        if (rows != expectedRows) {
+            throw new IOException(file + " holds " + rows + " rows but the manifest lists " + expectedRows);
+        }
+        return rows;
+    }
+
+    private static void readHeader(String table, Path file, DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !in.readUTF().equals(table)) {
+            throw new IOException(file + " is not a snapshot of " + table);
+        }
+    }
+
+    private static void skipRow(String table, DataInputStream in) throws IOException {
+        switch (table) {
+            case "STORE" -> {
+                in.readInt();
+                for (int i = 0; i < 5; i++) {
+                    skipString(in);
+                }
+            }
+            case "COFFEE" -> {
+                in.readInt();
+                skipString(in);
+                skipNullableInt(in);
+                in.readLong();
+            }
+            default -> {
+                in.readInt();
+                skipNullableInt(in);
+                in.readLong();
+                skipNullableInt(in);
+                skipNullableInt(in);
+            }
+        }
+    }
+
+    /**
+     * Loads one table from its file. Receipt partitions are loaded without
+     * their indexes and foreign keys, which are built afterwards.
+     *
+     * @return The number of rows loaded
+     */
+    private long restoreTable(String table, Path file, long expectedRows) throws SQLException, IOException {
+        boolean partition = table.startsWith(ReceiptPartitions.PARTITION_PREFIX);
+        String insert = switch (table) {
+            case "STORE" -> "INSERT INTO STORE VALUES (?, ?, ?, ?, ?, ?)";
+            case "COFFEE" -> "INSERT INTO COFFEE VALUES (?, ?, ?, ?)";
+            default -> "INSERT INTO " + table + " VALUES (?, ?, ?, ?, ?)";
+        };
+        long rows = 0;
+        try (Connection conn = connectionPool.getConnection();
+             DataInputStream in = openForRead(file)) {
+            readHeader(table, file, in);
+            if (partition) {
+                try (Statement st = conn.createStatement()) {
+                    ReceiptPartitions.dropIndexes(st, table);
+                }
+            }
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement st = conn.prepareStatement(insert)) {
+                st.setQueryTimeout(QUERY_TIMEOUT);
+                while (in.readByte() == ROW) {
+                    readRow(table, in, st);
+                    st.addBatch();
+                    rows++;
+                    if (rows % LOAD_BATCH_SIZE == 0) {
+                        st.executeBatch();
+                    }
+                    if (rows % LOAD_COMMIT_SIZE == 0) {
+                        conn.commit();
+                    }
+                }
+                st.executeBatch();
+                conn.commit();
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+            if (rows != expectedRows) {
+                throw new IOException(file + " holds " + rows + " rows but the manifest lists " + expectedRows);
+            }
+            if (partition) {
+                try (Statement st = conn.createStatement()) {
+                    st.setQueryTimeout(0); // index builds scan the whole partition
+                    ReceiptPartitions.createIndexes(st, table);
+                    st.executeUpdate("INSERT INTO RECEIPT_KEY SELECT receiptID, " + monthKeyOf(table) + " FROM " + table);
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static void readRow(String table, DataInputStream in, PreparedStatement st) throws SQLException, IOException {
+        switch (table) {
+            case "STORE" -> {
+                st.setInt(1, in.readInt());
+                st.setString(2, readString(in));
+                st.setString(3, readString(in));
+                st.setString(4, readString(in));
+                st.setString(5, readString(in));
+                st.setString(6, readString(in));
+            }
+            case "COFFEE" -> {
+                st.setInt(1, in.readInt());
+                st.setString(2, readString(in));
+                readNullableInt(in, st, 3);
+                long priceCents = in.readLong();
+                st.setBigDecimal(4, priceCents == NULL_LONG ? null : CompactCoffee.fromCents(priceCents));
+            }
+            default -> {
+                st.setInt(1, in.readInt());
+                readNullableInt(in, st, 2);
+                LocalDateTime timeOfPurchase = readTimestamp(in);
+                if (timeOfPurchase == null) {
+                    st.setNull(3, Types.TIMESTAMP);
+                } else {
+                    st.setObject(3, timeOfPurchase);
+                }
+                readNullableInt(in, st, 4);
+                readNullableInt(in, st, 5);
+            }
+        }
+    }
+
+    /**
+     * Runs the tasks on up to parallelism threads and returns their results
+     * in task order, rethrowing the first failure
+     */
+    private List<Long> runAll(List<Callable<Long>> tasks) throws SQLException, IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, tasks.size())));
+        try {
+            List<Long> results = new ArrayList<>();
+            for (Future<Long> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the snapshot", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Map<String, Long> readManifest(Path directory) throws IOException {
+        Path manifest = directory.resolve(MANIFEST_FILE);
+        if (!Files.exists(manifest)) {
+            throw new IOException(directory + " does not hold a complete snapshot");
+        }
+        Map<String, Long> tables = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(manifest)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] parts = line.split(" ");
+            long rows;
+            try {
+                rows = parts.length == 2 ? Long.parseLong(parts[1]) : -1;
+            } catch (NumberFormatException e) {
+                rows = -1;
+            }
+            if (rows < 0 || !isSnapshotTable(parts[0]) || tables.put(parts[0], rows) != null) {
+                throw new IOException(manifest + " has an invalid line: " + line);
+            }
+        }
+        if (!tables.containsKey("STORE") || !tables.containsKey("COFFEE")) {
+            throw new IOException(manifest + " does not list the STORE and COFFEE tables");
+        }
+        return tables;
+    }
+
+    /**
+     * @return true if the table is STORE, COFFEE or a receipt partition for a real month
+     */
+    private static boolean isSnapshotTable(String table) {
+        if (table.equals("STORE") || table.equals("COFFEE") || table.equals(ReceiptPartitions.DEFAULT_PARTITION)) {
+            return true;
+        }
+        if (!MONTH_PARTITION.matcher(table).matches()) {
+            return false;
+        }
+        try {
+            // RECEIPT_P000000 would be the default partition's key rather than a month
+            return ReceiptPartitions.monthOfKey(monthKeyOf(table)) != null;
+        } catch (DateTimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return The RECEIPT_KEY.partitionMonth of the receipts in a partition
+     */
+    private static int monthKeyOf(String partitionTable) {
+        return partitionTable.equals(ReceiptPartitions.DEFAULT_PARTITION)
+                ? ReceiptPartitions.DEFAULT_MONTH_KEY
+                : Integer.parseInt(partitionTable.substring(ReceiptPartitions.PARTITION_PREFIX.length()));
+    }
+
+    private static Path tableFile(Path directory, String table) {
+        return directory.resolve(table + TABLE_FILE_SUFFIX);
+    }
+
+    /**
+     * Opens a file for writing with fast deflate compression, which costs
+     * little CPU and shrinks the repetitive row data several times over
+     */
+    private static DataOutputStream openForWrite(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(Files.newOutputStream(file),
+                new Deflater(Deflater.BEST_SPEED), STREAM_BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                // A Deflater passed in is not released by the stream itself
+                try {
+                    super.close();
+                } finally {
+                    def.end();
+                }
+            }
+        }, STREAM_BUFFER_SIZE));
+    }
+
+    private static DataInputStream openForRead(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new InflaterInputStream(Files.newInputStream(file),
+                new Inflater(), STREAM_BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inf.end();
+                }
+            }
+        }, STREAM_BUFFER_SIZE));
+    }
+
+    /**
+     * Writes a nullable string as its length in UTF-8 bytes, or -1 for null, and then the bytes
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void skipString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length > 0) {
+            in.skipNBytes(length);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a nullable integer column as NULL_INT, or as NOT_NULL_INT and then the value
+     */
+    private static void writeNullableInt(DataOutputStream out, ResultSet rs, String column)
+            throws SQLException, IOException {
+        int value = rs.getInt(column);
+        if (rs.wasNull()) {
+            out.writeByte(NULL_INT);
+        } else {
+            out.writeByte(NOT_NULL_INT);
+            out.writeInt(value);
+        }
+    }
+
+    private static void skipNullableInt(DataInputStream in) throws IOException {
+        if (readIntMarker(in) == NOT_NULL_INT) {
+            in.readInt();
+        }
+    }
+
+    /**
+     * Reads a nullable integer written by writeNullableInt into the statement's parameter
+     */
+    private static void readNullableInt(DataInputStream in, PreparedStatement st, int parameter)
+            throws SQLException, IOException {
+        if (readIntMarker(in) == NOT_NULL_INT) {
+            st.setInt(parameter, in.readInt());
+        } else {
+            st.setNull(parameter, Types.INTEGER);
+        }
+    }
+
+    private static byte readIntMarker(DataInputStream in) throws IOException {
+        byte marker = in.readByte();
+        if (marker != NULL_INT && marker != NOT_NULL_INT) {
+            throw new IOException("Invalid null marker " + marker);
+        }
+        return marker;
+    }
+
+    /**
+     * Writes a nullable timestamp as microseconds since 1970-01-01T00:00 on
+     * the same wall clock, the precision of an H2 timestamp column. The
+     * offset is only used for the arithmetic; no time zone is applied.
+     */
+    private static void writeTimestamp(DataOutputStream out, LocalDateTime value) throws IOException {
+        out.writeLong(value == null ? NULL_LONG
+                : value.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + value.getNano() / 1000);
+    }
+
+    private static LocalDateTime readTimestamp(DataInputStream in) throws IOException {
+        long micros = in.readLong();
+        if (micros == NULL_LONG) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000), Math.floorMod(micros, 1_000_000) * 1000,
+                ZoneOffset.UTC);
+    }
+
+    /**
+     * Turns H2's lazy query execution on or off for the connection's session,
+     * so that a large table is read row by row rather than materialized
+     */
+    private static void setLazyExecution(Connection conn, boolean lazy) throws SQLException {
+        try (Statement settings = conn.createStatement()) {
+            settings.execute("SET LAZY_QUERY_EXECUTION " + (lazy ? "TRUE" : "FALSE"));
+        }
+    }
+}
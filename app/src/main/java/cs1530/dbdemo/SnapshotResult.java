@@ -0,0 +1,63 @@
+/**
+ * A helper class describing the outcome of a snapshot export or restore:
+ * how many tables and rows were copied, the size of the snapshot files,
+ * and how long it took.
+ */
+
+package cs1530.dbdemo;
+
+public class SnapshotResult {
+    private final int tableCount;
+    private final long rowCount;
+    private final long byteCount;
+    private final long elapsedNanos;
+
+    public SnapshotResult(int tableCount, long rowCount, long byteCount, long elapsedNanos) {
+        this.tableCount = tableCount;
+        this.rowCount = rowCount;
+        this.byteCount = byteCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return The number of tables copied, counting each receipt partition as a table
+     */
+    public int getTableCount() {
+        return tableCount;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return The compressed size of the snapshot files
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : rowCount * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : byteCount / (1024.0 * 1024.0) * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "tables=" + tableCount +
+                ", rows=" + rowCount +
+                ", bytes=" + byteCount +
+                ", elapsedMillis=" + elapsedNanos / 1_000_000 +
+                ", rowsPerSecond=" + String.format("%.0f", getRowsPerSecond()) +
+                ", megabytesPerSecond=" + String.format("%.1f", getMegabytesPerSecond()) +
+                '}';
+    }
+}
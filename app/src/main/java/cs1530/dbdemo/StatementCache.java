@@ -0,0 +1,160 @@
+/**
+ * A bounded, least-recently-used cache of PreparedStatements for a
+ * single physical connection, keyed by SQL text. The connection pool
+ * keeps one cache per pooled connection so that repeated lookups skip
+ * parsing and planning the same SQL again.
+ *
+ * A cached statement is handed out wrapped in a proxy whose close()
+ * puts the statement back into the cache instead of closing it.
+ * The cache is only ever used by the thread currently borrowing its
+ * connection, so it does not need to be thread-safe itself.
+ */
+
+package cs1530.dbdemo;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public class StatementCache {
+    private final Connection physicalConnection;
+    private final int capacity;
+    private final LongAdder hitCounter;
+    private final LongAdder missCounter;
+
+    // Statements that are not currently checked out, least recently used first
+    private final LinkedHashMap<String, PreparedStatement> statements = new LinkedHashMap<>();
+
+    /**
+     * @param physicalConnection The connection that statements are prepared on
+     * @param capacity The maximum number of idle statements kept open
+     * @param hitCounter Incremented whenever a cached statement is reused
+     * @param missCounter Incremented whenever a statement has to be prepared
+     */
+    public StatementCache(Connection physicalConnection, int capacity, LongAdder hitCounter, LongAdder missCounter) {
+        this.physicalConnection = physicalConnection;
+        this.capacity = capacity;
+        this.hitCounter = hitCounter;
+        this.missCounter = missCounter;
+    }
+
+    /**
+     * Checks out the cached statement for the SQL text, preparing a new
+     * one on a miss. The statement is removed from the cache while it is
+     * checked out, so two open statements for the same SQL never share
+     * a ResultSet.
+     *
+     * @param sql The SQL text of the statement
+     * @return A statement whose close() returns it to the cache
+     * @throws SQLException when the statement cannot be prepared
+     */
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        PreparedStatement statement = statements.remove(sql);
+        if (statement != null && !statement.isClosed()) {
+            hitCounter.increment();
+        } else {
+            missCounter.increment();
+            statement = physicalConnection.prepareStatement(sql);
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, new CheckedOutStatement(sql, statement));
+    }
+
+    /**
+     * @return The number of idle statements currently held by the cache
+     */
+    public int size() {
+        return statements.size();
+    }
+
+    /**
+     * Closes every idle statement held by the cache
+     */
+    public void clear() {
+        for (PreparedStatement statement : statements.values()) {
+            closeQuietly(statement);
+        }
+        statements.clear();
+    }
+
+    private void checkIn(String sql, PreparedStatement statement) throws SQLException {
+        ResultSet openResults = statement.getResultSet();
+        if (openResults != null) {
+            openResults.close();
+        }
+        statement.clearParameters();
+
+        if (capacity <= 0 || statements.containsKey(sql)) {
+            statement.close();
+            return;
+        }
+        statements.put(sql, statement);
+        if (statements.size() > capacity) {
+            Iterator<Map.Entry<String, PreparedStatement>> leastRecentlyUsed = statements.entrySet().iterator();
+            closeQuietly(leastRecentlyUsed.next().getValue());
+            leastRecentlyUsed.remove();
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            // The statement is being evicted, so there is nothing left to do
+        }
+    }
+
+    private final class CheckedOutStatement implements InvocationHandler {
+        private final String sql;
+        private final PreparedStatement statement;
+        private boolean checkedIn;
+
+        private CheckedOutStatement(String sql, PreparedStatement statement) {
+            this.sql = sql;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!checkedIn) {
+                        checkedIn = true;
+                        try {
+                            checkIn(sql, statement);
+                        } catch (SQLException e) {
+                            closeQuietly(statement);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return checkedIn || statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached" + statement;
+                default:
+                    break;
+            }
+            if (checkedIn) {
+                throw new SQLException("The statement has already been closed");
+            }
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * Wraps the statements handed out by the connection pool while a
+ * QueryContext is open or the slow-query log is on. The wrapper applies
+ * the context's deadline to the statement's query timeout each time it
+ * executes, registers the statement so that the context can cancel it,
+ * and traces the SQL and parameters it runs for the slow-query log.
+ *
+ * Statements created with neither are returned unwrapped, so the common
+ * path pays nothing for it.
+ */
+
+package cs1530.dbdemo;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+final class StatementTracker implements InvocationHandler {
+    private final Statement statement;
+    private final String sql;
+    private final QueryContext context;
+    private final boolean tracing;
+    // The timeout the caller asked for, which the context may cut short
+    private int requestedTimeout;
+    // Bound parameters by index, kept only while tracing
+    private Object[] parameters;
+    private int parameterCount;
+    private int batchSize;
+
+    private StatementTracker(Statement statement, String sql, QueryContext context, boolean tracing) {
+        this.statement = statement;
+        this.sql = sql;
+        this.context = context;
+        this.tracing = tracing;
+    }
+
+    /**
+     * @param statement The statement to wrap
+     * @param sql The SQL it was prepared with, or null for a plain Statement
+     * @return The statement, wrapped if there is a QueryContext open on this thread or the slow-query log is on
+     */
+    static <T extends Statement> T wrap(T statement, String sql) {
+        QueryContext context = QueryContext.current();
+        boolean tracing = SlowQueryLog.isEnabled();
+        if (context == null && !tracing) {
+            return statement;
+        }
+        if (context != null) {
+            context.track(statement);
+        }
+        Class<?> type = statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        @SuppressWarnings("unchecked")
+        T wrapped = (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new StatementTracker(statement, sql, context, tracing));
+        return wrapped;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        switch (name) {
+            case "setQueryTimeout":
+                requestedTimeout = (Integer) args[0];
+                statement.setQueryTimeout(context == null ? requestedTimeout : context.timeoutSeconds(requestedTimeout));
+                return null;
+            case "close":
+                if (context != null) {
+                    context.untrack(statement);
+                }
+                break;
+            case "addBatch":
+                batchSize++;
+                break;
+            case "clearParameters":
+                parameters = null;
+                parameterCount = 0;
+                break;
+            case "clearBatch":
+                batchSize = 0;
+                break;
+            case "executeQuery", "executeUpdate", "execute", "executeLargeUpdate", "executeBatch", "executeLargeBatch":
+                beforeExecute(name, args);
+                break;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Tracked" + statement;
+            default:
+                if (tracing && name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                    // setNull's second argument is the SQL type, not the value
+                    recordParameter(index, name.equals("setNull") ? null : args[1]);
+                }
+                break;
+        }
+        try {
+            return method.invoke(statement, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        } finally {
+            if (name.startsWith("execute") && name.endsWith("Batch")) {
+                batchSize = 0;
+            }
+        }
+    }
+
+    /**
+     * Applies the time left before the deadline, failing if there is none
+     * left, and traces the statement
+     */
+    private void beforeExecute(String name, Object[] args) throws SQLException {
+        if (context != null) {
+            statement.setQueryTimeout(context.timeoutSeconds(requestedTimeout));
+        }
+        if (tracing) {
+            // A plain Statement is given its SQL when it is executed
+            String executed = args != null && args.length > 0 && args[0] instanceof String text ? text : sql;
+            boolean batch = name.endsWith("Batch");
+            QueryTimer.trace(SlowQueryLog.describe(executed, parameters, parameterCount, batch ? batchSize : 0));
+        }
+    }
+
+    private void recordParameter(int index, Object value) {
+        if (parameters == null) {
+            parameters = new Object[Math.max(index + 1, 8)];
+        } else if (index >= parameters.length) {
+            parameters = Arrays.copyOf(parameters, Math.max(index + 1, parameters.length * 2));
+        }
+        parameters[index] = value;
+        parameterCount = Math.max(parameterCount, index);
+    }
+}
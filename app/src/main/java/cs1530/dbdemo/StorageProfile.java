@@ -0,0 +1,70 @@
+/**
+ * The ways the app can store its H2 database, from fastest and least
+ * durable to slowest and most durable for a given workload. A profile is
+ * chosen with the single setting -Ddbdemo.profile, for example
+ * -Ddbdemo.profile=file-ingest, and defaults to FILE.
+ *
+ * IN_MEMORY keeps everything in the JVM heap and loses it on exit.
+ * FILE stores the database in an MVStore file with a larger page cache
+ * than H2's default, so that the working set of the receipt partitions
+ * stays in memory. FILE_INGEST uses a larger cache still and defers
+ * writing commits to the file by up to two seconds, so bulk loads write
+ * fewer, larger chunks; a crash can lose the last two seconds of commits.
+ */
+
+package cs1530.dbdemo;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+public enum StorageProfile {
+    IN_MEMORY(null),
+    // CACHE_SIZE is in KB: a 128 MB page cache
+    FILE(";CACHE_SIZE=131072"),
+    // A 256 MB page cache, and commits written to the file at most every 2 seconds
+    FILE_INGEST(";CACHE_SIZE=262144;WRITE_DELAY=2000");
+
+    // Set e.g. -Ddbdemo.profile=in-memory to choose a profile
+    public static final String PROPERTY = "dbdemo.profile";
+
+    private final String fileSettings;
+
+    StorageProfile(String fileSettings) {
+        this.fileSettings = fileSettings;
+    }
+
+    /**
+     * @param databasePath The path of the database files, without an extension;
+     *                     only its file name is used to name an in-memory database
+     * @return The JDBC URL of the database stored with this profile
+     */
+    public String url(String databasePath) {
+        if (fileSettings == null) {
+            // The database lives as long as the JVM rather than until its last connection closes
+            return "jdbc:h2:mem:" + Path.of(databasePath).getFileName() + ";DB_CLOSE_DELAY=-1";
+        }
+        return "jdbc:h2:" + databasePath + fileSettings;
+    }
+
+    public boolean isInMemory() {
+        return fileSettings == null;
+    }
+
+    /**
+     * @param name A profile name in any case, with - or _ between words, such as "file-ingest"
+     * @return The profile with that name
+     * @throws IllegalArgumentException If there is no profile with that name
+     */
+    public static StorageProfile fromName(String name) {
+        return valueOf(name.strip().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+
+    /**
+     * @return The profile named by the dbdemo.profile system property, or FILE if it is not set
+     * @throws IllegalArgumentException If the property names no profile
+     */
+    public static StorageProfile fromSystemProperty() {
+        String name = System.getProperty(PROPERTY);
+        return name == null ? FILE : fromName(name);
+    }
+}
@@ -9,14 +9,14 @@
 package cs1530.dbdemo;
 
 public class Store implements RowInterface {
-    private Integer storeNumber;
+    private int storeNumber;
     private String storeName;
     private String storeType;
     private String street;
     private String city;
     private String state;
 
-    public Store(Integer storeNumber, String name, String storeType, String street, String city, String state) {
+    public Store(int storeNumber, String name, String storeType, String street, String city, String state) {
         this.storeNumber = storeNumber;
         this.storeName = name;
         this.storeType = storeType;
@@ -25,7 +25,7 @@ public class Store implements RowInterface {
         this.state = state;
     }
 
-    public Integer getStoreNumber() {
+    public int getStoreNumber() {
         return storeNumber;
     }
 
@@ -49,6 +49,16 @@ public class Store implements RowInterface {
         return state;
     }
 
+    @Override
+    public void visitFields(FieldVisitor visitor) {
+        visitor.visitInt("storeNumber", storeNumber);
+        visitor.visitString("storeName", storeName);
+        visitor.visitString("storeType", storeType);
+        visitor.visitString("street", street);
+        visitor.visitString("city", city);
+        visitor.visitString("state", state);
+    }
+
     @Override
     public String toString() {
         return "{" +
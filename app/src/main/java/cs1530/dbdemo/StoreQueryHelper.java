@@ -14,47 +14,26 @@ import java.sql.Statement;
 import java.sql.PreparedStatement;
 import java.sql.Connection;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class StoreQueryHelper {
     private static final int QUERY_TIMEOUT = 30;
-    private Connection databaseConnection;
+    private static final int MULTI_GET_CHUNK_SIZE = 1000;
+    private ConnectionPool connectionPool;
 
     /**
-     * The constructor for the StoreQueryHelper class, which
-     * attempts to build and initialize the STORE table in the
-     * H2 database with some sample data
+     * The constructor for the StoreQueryHelper class. The STORE
+     * table is created by SchemaManager rather than here, so
+     * constructing a helper does not touch the database
      *
-     * @param conn The database connection for executing modifications
-     *             and queries
+     * @param pool The connection pool that queries and modifications
+     *             borrow their database connections from
      */
-    public StoreQueryHelper(Connection conn) {
-        this.databaseConnection = conn;
-        try (Statement st = databaseConnection.createStatement()) {
-            st.setQueryTimeout(QUERY_TIMEOUT); // set timeout to 30 seconds
-            st.executeUpdate("DROP TABLE IF EXISTS STORE CASCADE;");
-            st.executeUpdate("CREATE TABLE STORE (storeNumber integer PRIMARY KEY, " +
-                    "name varchar(50)," +
-                    "storeType varchar(50)," +
-                    "street varchar(50)," +
-                    "city varchar(50)," +
-                    "state varchar(20));");
-            // Can execute each update as a single statement
-            st.executeUpdate("INSERT INTO STORE VALUES (1, 'Test Store', 'sitting', 'Forbes', 'Pittsburgh', 'Pennsylvania');");
-            st.executeUpdate("INSERT INTO STORE VALUES (2, 'Test Store2', 'sitting', 'Fifth', 'Pittsburgh', 'Pennsylvania');");
-
-            // Or execute multiple updates within a single statement
-            st.executeUpdate("INSERT INTO STORE VALUES (3, 'Test Store 3', 'drive-through', 'Lincoln', 'Seattle', 'Washington')," +
-                    "(4, 'Test Store 4', 'digital', 'Pike', 'Los Angeles', 'California')," +
-                    "(5, 'Test Store 5', 'digital', 'Park Place', 'Hollywood', 'California')," +
-                    "(6, 'Test Store 6', 'sitting', 'Madison Square', 'New York City', 'New York')," +
-                    "(7, 'Test Store 7', 'digital', 'Washington Ave', 'New York City', 'New York')," +
-                    "(8, 'Test Store 8', 'drive-through', 'Lincoln Place', 'Albany', 'New York')," +
-                    "(9, 'Test Store 9', 'digital', 'Forbes', 'Pittsburgh', 'Pennsylvania')," +
-                    "(10, 'Test Store 10', 'drive-through', 'Boulevard of the Allies', 'Pittsburgh', 'Pennsylvania');");
-        } catch (SQLException e) {
-            handleError(e);
-        }
+    public StoreQueryHelper(ConnectionPool pool) {
+        this.connectionPool = pool;
     }
 
     /**
@@ -63,18 +42,23 @@ public class StoreQueryHelper {
      * @return A List of all Stores in the H2 database
      */
     protected List<RowInterface> findAll() {
+        QueryTimer timer = QueryMetrics.start("store.findAll");
         List<RowInterface> storeList = new ArrayList<>();
-        try (Statement st = databaseConnection.createStatement()) {
+        try (Connection conn = connectionPool.getConnection();
+             Statement st = conn.createStatement()) {
             st.setQueryTimeout(QUERY_TIMEOUT); // set timeout to 30 seconds
             // TODO: Replace the Null assignment below with the SQL query to retrieve all stores
             ResultSet rs = st.executeQuery("SELECT * FROM STORE");
+            RowMapper<Store> storeMapper = bindStoreMapper(rs);
             while (rs != null && rs.next()) {
-                Store currentStore = buildStoreFromRow(rs);
+                Store currentStore = storeMapper.mapRow(rs);
                 storeList.add(currentStore);
             }
         } catch (SQLException e) {
+            timer.fail(e);
             handleError(e);
         }
+        timer.stop(storeList.size());
         return storeList;
     }
 
@@ -83,24 +67,91 @@ public class StoreQueryHelper {
      * storeNumber
      *
      * @param storeNumber The storeNumber that the queried rows should have
-     * @return A list of all Stores in the H2 database with the specified storeNumber
+     * @return An unmodifiable list of all Stores in the H2 database with the specified storeNumber,
+     *         whether or not it came from the cache
      */
     protected List<RowInterface> findByStoreNumber(int storeNumber) {
+        QueryTimer timer = QueryMetrics.start("store.findByStoreNumber");
+        List<RowInterface> cached = getStoreNumberCache().get(storeNumber);
+        if (cached != null) {
+            timer.stop(cached.size());
+            return cached;
+        }
+        long cacheGeneration = getStoreNumberCache().generation();
         List<RowInterface> storeList = new ArrayList<>();
         // TODO: Fill-In the SQL statement below to filter for rows with a given storeNumber
-        try (PreparedStatement st = databaseConnection.prepareStatement("SELECT * FROM STORE WHERE storeNumber=?")) {
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement st = conn.prepareStatement("SELECT * FROM STORE WHERE storeNumber=?")) {
             st.setQueryTimeout(QUERY_TIMEOUT);
             // TODO: Given the updated SQL statement, set the storeNumber parameter
             st.setInt(1, storeNumber);
             ResultSet rs = st.executeQuery();
+            RowMapper<Store> storeMapper = bindStoreMapper(rs);
             while (rs.next()) {
-                Store currentStore = buildStoreFromRow(rs);
+                Store currentStore = storeMapper.mapRow(rs);
                 storeList.add(currentStore);
             }
+            getStoreNumberCache().put(storeNumber, List.copyOf(storeList), cacheGeneration);
         } catch (SQLException e) {
+            timer.fail(e);
             handleError(e);
         }
-        return storeList;
+        timer.stop(storeList.size());
+        // The same kind of list a cache hit returns, so callers cannot tell the two apart
+        return List.copyOf(storeList);
+    }
+
+    /**
+     * A helper function for querying the Stores with any of the specified
+     * storeNumbers. Stores already in the cache are not queried again, and
+     * the rest are queried MULTI_GET_CHUNK_SIZE at a time.
+     *
+     * @param storeNumbers The storeNumbers to look up, which may contain duplicates
+     * @return The Stores found, in the order of storeNumbers, and the storeNumbers that were not found
+     */
+    protected MultiGetResult findByStoreNumbers(int[] storeNumbers) {
+        QueryTimer timer = QueryMetrics.start("store.findByStoreNumbers");
+        Map<Integer, RowInterface> found = new HashMap<>();
+        int statementCount = 0;
+        boolean failed = false;
+        long cacheGeneration = getStoreNumberCache().generation();
+        int[] uncached = Arrays.stream(storeNumbers).distinct().filter(storeNumber -> {
+            List<RowInterface> cached = getStoreNumberCache().get(storeNumber);
+            if (cached == null) {
+                return true;
+            }
+            if (!cached.isEmpty()) {
+                found.put(storeNumber, cached.getFirst());
+            }
+            return false;
+        }).toArray();
+        if (uncached.length > 0) {
+            try (Connection conn = connectionPool.getConnection();
+                 PreparedStatement st = conn.prepareStatement("SELECT * FROM STORE WHERE storeNumber = ANY(?)")) {
+                st.setQueryTimeout(QUERY_TIMEOUT);
+                for (int from = 0; from < uncached.length; from += MULTI_GET_CHUNK_SIZE) {
+                    st.setArray(1, conn.createArrayOf("INTEGER", MultiGetResult.chunk(uncached, from, MULTI_GET_CHUNK_SIZE)));
+                    ResultSet rs = st.executeQuery();
+                    statementCount++;
+                    RowMapper<Store> storeMapper = bindStoreMapper(rs);
+                    while (rs.next()) {
+                        Store currentStore = storeMapper.mapRow(rs);
+                        found.put(currentStore.getStoreNumber(), currentStore);
+                    }
+                }
+                // Cached the same way findByStoreNumber caches them, including the misses
+                for (int storeNumber : uncached) {
+                    RowInterface store = found.get(storeNumber);
+                    getStoreNumberCache().put(storeNumber, store == null ? List.of() : List.of(store), cacheGeneration);
+                }
+            } catch (SQLException e) {
+                failed = true;
+                timer.fail(e);
+                handleError(e);
+            }
+        }
+        timer.stop(found.size());
+        return MultiGetResult.inKeyOrder(storeNumbers, found, statementCount, failed);
     }
 
     /**
@@ -111,20 +162,25 @@ public class StoreQueryHelper {
      * @return A list of all Stores in the H2 database with the specified storeType
      */
     protected List<RowInterface> findByStoreType(String storeType) {
+        QueryTimer timer = QueryMetrics.start("store.findByStoreType");
         List<RowInterface> storeList = new ArrayList<>();
         // TODO: Fill-In the SQL statement below to filter for rows with a given storeType
-        try (PreparedStatement st = databaseConnection.prepareStatement("SELECT * FROM STORE WHERE storeType=?")) {
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement st = conn.prepareStatement("SELECT * FROM STORE WHERE storeType=?")) {
             st.setQueryTimeout(QUERY_TIMEOUT);
             // TODO: Given the updated SQL statement, set the storeType parameter
             st.setString(1, storeType);
             ResultSet rs = st.executeQuery();
+            RowMapper<Store> storeMapper = bindStoreMapper(rs);
             while (rs.next()) {
-                Store currentStore = buildStoreFromRow(rs);
+                Store currentStore = storeMapper.mapRow(rs);
                 storeList.add(currentStore);
             }
         } catch (SQLException e) {
+            timer.fail(e);
             handleError(e);
         }
+        timer.stop(storeList.size());
         return storeList;
     }
 
@@ -138,40 +194,68 @@ public class StoreQueryHelper {
      *          city and state
      */
     protected List<RowInterface> findByCityAndState(String city, String state) {
+        QueryTimer timer = QueryMetrics.start("store.findByCityAndState");
         List<RowInterface> storeList = new ArrayList<>();
         // TODO: Fill-In the SQL statement below to filter for rows with a given city and state
-        try (PreparedStatement st = databaseConnection.prepareStatement("SELECT * FROM STORE WHERE city=? AND state=?")) {
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement st = conn.prepareStatement("SELECT * FROM STORE WHERE city=? AND state=?")) {
             st.setQueryTimeout(QUERY_TIMEOUT);
             // TODO: Given the updated SQL statement, set the city and state parameters
             st.setString(1, city);
             st.setString(2, state);
             ResultSet rs = st.executeQuery();
+            RowMapper<Store> storeMapper = bindStoreMapper(rs);
             while (rs.next()) {
-                Store currentStore = buildStoreFromRow(rs);
+                Store currentStore = storeMapper.mapRow(rs);
                 storeList.add(currentStore);
             }
         } catch (SQLException e) {
+            timer.fail(e);
             handleError(e);
         }
+        timer.stop(storeList.size());
         return storeList;
     }
 
     /**
-     * A private helper function for converting a row from ResultSet (JDBC's
-     * standard return type for a query) to an instance of the Store class.
+     * Drops every cached STORE lookup, for every helper using the pool.
+     * Must be called whenever the STORE table is written.
+     */
+    public void invalidateCache() {
+        connectionPool.invalidateStoreCache();
+    }
+
+    /**
+     * @return The cache of lookups by storeNumber, shared by every helper using the pool
+     */
+    public QueryCache<Integer, List<RowInterface>> getStoreNumberCache() {
+        return connectionPool.getStoreNumberCache();
+    }
+
+    /**
+     * A helper function for building a RowMapper that converts rows from
+     * a ResultSet (JDBC's standard return type for a query) to instances of the
+     * Store class. The column ordinals are looked up once here rather than by
+     * name on every row.
      *
-     * @param rs The ResultSet being iterated from executing a query
-     * @return The Store instance that matches the ResultSet's current row
+     * @param rs The ResultSet that will be iterated from executing a query
+     * @return A RowMapper producing the Store instance that matches the ResultSet's current row
      * @throws SQLException when the ResultSet is closed or another exception occurs
-     *                      such as trying to access a column that is not part of the ResultSet
+     *                      such as a column that is not part of the ResultSet
      */
-    private static Store buildStoreFromRow(ResultSet rs) throws SQLException {
-        return new Store(rs.getInt("storeNumber"),
-                rs.getString("name"),
-                rs.getString("storeType"),
-                rs.getString("street"),
-                rs.getString("city"),
-                rs.getString("state"));
+    static RowMapper<Store> bindStoreMapper(ResultSet rs) throws SQLException {
+        int storeNumber = rs.findColumn("storeNumber");
+        int name = rs.findColumn("name");
+        int storeType = rs.findColumn("storeType");
+        int street = rs.findColumn("street");
+        int city = rs.findColumn("city");
+        int state = rs.findColumn("state");
+        return row -> new Store(row.getInt(storeNumber),
+                row.getString(name),
+                row.getString(storeType),
+                row.getString(street),
+                row.getString(city),
+                row.getString(state));
     }
 
     /**
@@ -0,0 +1,269 @@
+/**
+ * Generates and loads synthetic Stores, Coffees and Receipts for load
+ * testing at realistic scale. Store and coffee popularity follow Zipf
+ * distributions, so a few stores and coffees account for most sales, and
+ * purchases cluster around the morning and lunch rushes.
+ *
+ * The output depends only on the seed and the requested volumes, so two
+ * loads with the same arguments produce the same rows. Receipts are
+ * generated and inserted a chunk at a time, so memory use does not grow
+ * with the number of receipts.
+ */
+
+package cs1530.dbdemo;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class SyntheticDataGenerator {
+    private static final int QUERY_TIMEOUT = 30;
+    private static final int LOAD_CHUNK_SIZE = 100_000;
+    private static final int INSERT_BATCH_SIZE = 10_000;
+    private static final long MILLIS_PER_HOUR = 60 * 60 * 1000;
+    private static final long MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+    // Zipf exponents; coffee sales are more concentrated on the best sellers than store traffic is
+    private static final double STORE_SKEW = 0.8;
+    private static final double COFFEE_SKEW = 1.1;
+    // Relative purchases in each hour of the day, peaking at the morning rush and again at lunch
+    private static final double[] HOUR_WEIGHTS = {
+            0.1, 0.05, 0.05, 0.05, 0.1, 0.5, 3, 8, 10, 7, 5, 5,
+            6, 5, 4, 4, 3.5, 3, 2, 1.5, 1, 0.5, 0.3, 0.2};
+    // Relative receipts with a quantity of 1 to 5
+    private static final double[] QUANTITY_WEIGHTS = {60, 25, 10, 3, 2};
+    private static final String[] STORE_TYPES = {"sitting", "drive-through", "digital"};
+    private static final String[][] CITIES = {
+            {"Pittsburgh", "Pennsylvania"}, {"Philadelphia", "Pennsylvania"}, {"Seattle", "Washington"},
+            {"Los Angeles", "California"}, {"San Francisco", "California"}, {"New York City", "New York"},
+            {"Albany", "New York"}, {"Chicago", "Illinois"}, {"Austin", "Texas"}, {"Houston", "Texas"},
+            {"Boston", "Massachusetts"}, {"Denver", "Colorado"}, {"Atlanta", "Georgia"}, {"Miami", "Florida"}};
+    private static final String[] STREETS = {"Forbes", "Fifth", "Lincoln", "Pike", "Main", "Market", "Park Place",
+            "Washington Ave", "Broadway", "Elm", "Oak", "Maple", "Liberty", "Penn"};
+    private static final String[] COFFEE_NAMES = {"Espresso", "Latte", "Drip Coffee", "Cappuccino", "Macchiato",
+            "Cold Brew", "Hot Chocolate", "Americano", "Mocha", "Frappuccino", "Flat White", "Cortado"};
+
+    private final long seed;
+    private final int storeCount;
+    private final int coffeeCount;
+    private final LocalDate firstDay;
+    private final int dayCount;
+
+    private final double[] storeCdf;
+    private final double[] coffeeCdf;
+    private final double[] hourCdf = cumulative(HOUR_WEIGHTS);
+    private final double[] quantityCdf = cumulative(QUANTITY_WEIGHTS);
+
+    /**
+     * @param seed The random seed that determines every generated row
+     * @param storeCount The number of stores; stores 1 to storeCount are generated
+     * @param coffeeCount The number of coffees; coffees 1 to coffeeCount are generated
+     * @param firstDay The first day that receipts are dated
+     * @param dayCount The number of days, from firstDay, that receipts are spread over
+     */
+    public SyntheticDataGenerator(long seed, int storeCount, int coffeeCount, LocalDate firstDay, int dayCount) {
+        if (storeCount < 1 || coffeeCount < 1 || dayCount < 1) {
+            throw new IllegalArgumentException("The store, coffee and day counts must be positive");
+        }
+        this.seed = seed;
+        this.storeCount = storeCount;
+        this.coffeeCount = coffeeCount;
+        this.firstDay = firstDay;
+        this.dayCount = dayCount;
+        this.storeCdf = zipfCdf(storeCount, STORE_SKEW);
+        this.coffeeCdf = zipfCdf(coffeeCount, COFFEE_SKEW);
+    }
+
+    /**
+     * Adds the generated Stores and Coffees that are not in the database
+     * yet, and then receiptCount generated Receipts with receiptIDs after
+     * the largest existing one. Receipts are inserted with
+     * ReceiptQueryHelper.insertReceipts, so they are routed to their
+     * partitions and counted in the daily sales rollup as usual.
+     *
+     * @param pool The connection pool to load through
+     * @param receiptCount The number of Receipts to add
+     * @return The number of rows added to each table and the load throughput
+     * @throws SQLException If the Stores or Coffees cannot be inserted
+     */
+    public SyntheticLoadResult load(ConnectionPool pool, long receiptCount) throws SQLException {
+        if (receiptCount < 0) {
+            throw new IllegalArgumentException("The receipt count must not be negative");
+        }
+        long start = System.nanoTime();
+        int storesInserted;
+        int coffeesInserted;
+        int firstReceiptID;
+        try (Connection conn = pool.getConnection()) {
+            storesInserted = insertStores(conn);
+            coffeesInserted = insertCoffees(conn);
+            firstReceiptID = maxReceiptID(conn) + 1;
+        } finally {
+            // Lookups of the new stores and coffees may have been cached as misses
+            pool.invalidateStoreCache();
+            pool.invalidateCoffeeCache();
+        }
+        if (receiptCount > Integer.MAX_VALUE - (long) firstReceiptID + 1) {
+            throw new IllegalArgumentException(receiptCount + " receipts would overflow the integer receiptID");
+        }
+
+        ReceiptQueryHelper receiptHelper = new ReceiptQueryHelper(pool);
+        SplittableRandom random = new SplittableRandom(seed);
+        long receiptsInserted = 0;
+        long receiptsRejected = 0;
+        for (long generated = 0; generated < receiptCount; generated += LOAD_CHUNK_SIZE) {
+            int count = (int) Math.min(LOAD_CHUNK_SIZE, receiptCount - generated);
+            BatchInsertResult result = receiptHelper.insertReceipts(
+                    generateReceipts(random, (int) (firstReceiptID + generated), count));
+            receiptsInserted += result.getInsertedCount();
+            receiptsRejected += result.getRejected().size();
+        }
+        return new SyntheticLoadResult(storesInserted, coffeesInserted, receiptsInserted, receiptsRejected,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Generates the next count receipts from the random sequence, with
+     * consecutive receiptIDs
+     */
+    List<Receipt> generateReceipts(SplittableRandom random, int firstReceiptID, int count) {
+        long firstDayMillis = Timestamp.valueOf(firstDay.atStartOfDay()).getTime();
+        List<Receipt> receipts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long timeOfPurchase = firstDayMillis
+                    + random.nextInt(dayCount) * MILLIS_PER_DAY
+                    + sample(hourCdf, random) * MILLIS_PER_HOUR
+                    + random.nextLong(MILLIS_PER_HOUR) / 1000 * 1000;
+            receipts.add(new Receipt(firstReceiptID + i,
+                    sample(storeCdf, random) + 1,
+                    new Timestamp(timeOfPurchase),
+                    sample(coffeeCdf, random) + 1,
+                    sample(quantityCdf, random) + 1));
+        }
+        return receipts;
+    }
+
+    /**
+     * Inserts the generated stores numbered after the largest existing storeNumber
+     *
+     * @return The number of stores inserted
+     */
+    private int insertStores(Connection conn) throws SQLException {
+        int firstStoreNumber = maxKey(conn, "SELECT COALESCE(MAX(storeNumber), 0) FROM STORE") + 1;
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement st = conn.prepareStatement("INSERT INTO STORE VALUES (?, ?, ?, ?, ?, ?)")) {
+            st.setQueryTimeout(QUERY_TIMEOUT);
+            for (int storeNumber = firstStoreNumber; storeNumber <= storeCount; storeNumber++) {
+                // Each store's attributes depend only on the seed and its number
+                SplittableRandom random = new SplittableRandom(seed * 31 + storeNumber);
+                String[] city = CITIES[random.nextInt(CITIES.length)];
+                st.setInt(1, storeNumber);
+                st.setString(2, "Store " + storeNumber);
+                st.setString(3, STORE_TYPES[random.nextInt(STORE_TYPES.length)]);
+                st.setString(4, STREETS[random.nextInt(STREETS.length)]);
+                st.setString(5, city[0]);
+                st.setString(6, city[1]);
+                st.addBatch();
+                if ((storeNumber - firstStoreNumber + 1) % INSERT_BATCH_SIZE == 0) {
+                    st.executeBatch();
+                }
+            }
+            st.executeBatch();
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        return Math.max(0, storeCount - firstStoreNumber + 1);
+    }
+
+    /**
+     * Inserts the generated coffees numbered after the largest existing coffeeID
+     *
+     * @return The number of coffees inserted
+     */
+    private int insertCoffees(Connection conn) throws SQLException {
+        int firstCoffeeID = maxKey(conn, "SELECT COALESCE(MAX(coffeeID), 0) FROM COFFEE") + 1;
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement st = conn.prepareStatement("INSERT INTO COFFEE VALUES (?, ?, ?, ?)")) {
+            st.setQueryTimeout(QUERY_TIMEOUT);
+            for (int coffeeID = firstCoffeeID; coffeeID <= coffeeCount; coffeeID++) {
+                SplittableRandom random = new SplittableRandom(seed * 37 + coffeeID);
+                st.setInt(1, coffeeID);
+                st.setString(2, COFFEE_NAMES[random.nextInt(COFFEE_NAMES.length)] + " " + coffeeID);
+                st.setInt(3, random.nextInt(10) + 1);
+                // Between 1.00 and 5.99
+                st.setBigDecimal(4, BigDecimal.valueOf(100 + random.nextInt(500), 2));
+                st.addBatch();
+                if ((coffeeID - firstCoffeeID + 1) % INSERT_BATCH_SIZE == 0) {
+                    st.executeBatch();
+                }
+            }
+            st.executeBatch();
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        return Math.max(0, coffeeCount - firstCoffeeID + 1);
+    }
+
+    private static int maxReceiptID(Connection conn) throws SQLException {
+        // RECEIPT_KEY holds every receiptID in any partition
+        return maxKey(conn, "SELECT COALESCE(MAX(receiptID), 0) FROM RECEIPT_KEY");
+    }
+
+    private static int maxKey(Connection conn, String sql) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.setQueryTimeout(QUERY_TIMEOUT);
+            ResultSet rs = st.executeQuery(sql);
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    /**
+     * @return The cumulative distribution of a Zipf distribution over ranks 1 to n,
+     *         where rank k has weight 1 / k^skew
+     */
+    private static double[] zipfCdf(int n, double skew) {
+        double[] weights = new double[n];
+        for (int k = 0; k < n; k++) {
+            weights[k] = 1 / Math.pow(k + 1, skew);
+        }
+        return cumulative(weights);
+    }
+
+    /**
+     * @return The running totals of the weights, normalized so the last is 1
+     */
+    private static double[] cumulative(double[] weights) {
+        double[] cdf = new double[weights.length];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i];
+            cdf[i] = total;
+        }
+        for (int i = 0; i < cdf.length; i++) {
+            cdf[i] /= total;
+        }
+        cdf[cdf.length - 1] = 1.0;
+        return cdf;
+    }
+
+    /**
+     * @return An index drawn with the probabilities given by the cumulative distribution
+     */
+    private static int sample(double[] cdf, SplittableRandom random) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return index >= 0 ? index : -index - 1;
+    }
+}
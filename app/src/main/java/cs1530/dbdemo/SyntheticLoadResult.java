@@ -0,0 +1,64 @@
+/**
+ * A helper class describing the outcome of a synthetic data load: how
+ * many rows were added to each table, how many generated receipts were
+ * rejected, and how long the load took.
+ */
+
+package cs1530.dbdemo;
+
+public class SyntheticLoadResult {
+    private final int storesInserted;
+    private final int coffeesInserted;
+    private final long receiptsInserted;
+    private final long receiptsRejected;
+    private final long elapsedNanos;
+
+    public SyntheticLoadResult(int storesInserted, int coffeesInserted, long receiptsInserted, long receiptsRejected,
+                               long elapsedNanos) {
+        this.storesInserted = storesInserted;
+        this.coffeesInserted = coffeesInserted;
+        this.receiptsInserted = receiptsInserted;
+        this.receiptsRejected = receiptsRejected;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getStoresInserted() {
+        return storesInserted;
+    }
+
+    public int getCoffeesInserted() {
+        return coffeesInserted;
+    }
+
+    public long getReceiptsInserted() {
+        return receiptsInserted;
+    }
+
+    public long getReceiptsRejected() {
+        return receiptsRejected;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return The rows inserted into all three tables per second
+     */
+    public double getRowsPerSecond() {
+        long rows = storesInserted + coffeesInserted + receiptsInserted;
+        return elapsedNanos == 0 ? 0.0 : rows * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "stores=" + storesInserted +
+                ", coffees=" + coffeesInserted +
+                ", receipts=" + receiptsInserted +
+                ", rejected=" + receiptsRejected +
+                ", elapsedMillis=" + elapsedNanos / 1_000_000 +
+                ", rowsPerSecond=" + String.format("%.0f", getRowsPerSecond()) +
+                '}';
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Writes rows in the format of the interactive menu: a boxed title naming
+ * the row class before each non-empty result, then one line per row
+ * listing its fields as {name=value, ...} with strings quoted.
+ */
+
+package cs1530.dbdemo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+public class TableRowWriter implements RowWriter, FieldVisitor {
+    private static final int TITLE_WIDTH = 64;
+    private static final String TITLE_BORDER = "+" + "-".repeat(TITLE_WIDTH) + "+\n";
+
+    private final RowOutput out;
+    private boolean titlePending = true;
+    private boolean firstField;
+
+    /**
+     * @param out The output the rows are rendered into
+     */
+    public TableRowWriter(RowOutput out) {
+        this.out = out;
+    }
+
+    @Override
+    public void beginResult() {
+        titlePending = true;
+    }
+
+    @Override
+    public void writeRow(RowInterface row) throws IOException {
+        try {
+            if (titlePending) {
+                writeTitle(row instanceof SalesSummary ? "Sales Summary" : row.getClass().getSimpleName());
+                titlePending = false;
+            }
+            firstField = true;
+            out.append('{');
+            row.visitFields(this);
+            out.append('}').append('\n');
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void endResult() throws IOException {
+        try {
+            out.append('\n').append('\n');
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void visitInt(String name, long value) {
+        startField(name);
+        out.append(value);
+    }
+
+    @Override
+    public void visitDouble(String name, double value) {
+        startField(name);
+        out.append(value);
+    }
+
+    @Override
+    public void visitDecimal(String name, BigDecimal value) {
+        startField(name);
+        if (value == null) {
+            out.append("null");
+        } else {
+            out.append(value.toPlainString());
+        }
+    }
+
+    @Override
+    public void visitString(String name, String value) {
+        startField(name);
+        if (value == null) {
+            out.append("null");
+        } else {
+            out.append('\'').append(value).append('\'');
+        }
+    }
+
+    @Override
+    public void visitTimestamp(String name, Timestamp value) {
+        startField(name);
+        if (value == null) {
+            out.append("null");
+        } else {
+            out.append(value);
+        }
+    }
+
+    private void startField(String name) {
+        if (!firstField) {
+            out.append(',').append(' ');
+        }
+        firstField = false;
+        out.append(name).append('=');
+    }
+
+    private void writeTitle(String title) {
+        int left = (TITLE_WIDTH - title.length()) / 2;
+        out.append(TITLE_BORDER).append('|');
+        for (int i = 0; i < left; i++) {
+            out.append(' ');
+        }
+        out.append(title);
+        for (int i = left + title.length(); i < TITLE_WIDTH; i++) {
+            out.append(' ');
+        }
+        out.append('|').append('\n').append(TITLE_BORDER);
+    }
+}
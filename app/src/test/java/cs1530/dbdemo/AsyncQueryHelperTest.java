@@ -0,0 +1,48 @@
+package cs1530.dbdemo;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the async helper over finders that are stubbed out, so no database is needed
+ */
+class AsyncQueryHelperTest {
+    @Test void errorThrownByAQueryFailsTheFuture() throws Exception {
+        StoreQueryHelper failingHelper = new StoreQueryHelper(null) {
+            @Override
+            protected List<RowInterface> findByStoreNumber(int storeNumber) {
+                throw new AssertionError("query failed");
+            }
+        };
+        try (AsyncQueryHelper asyncHelper = new AsyncQueryHelper(failingHelper, null, null, 1, 1, 1000)) {
+            CompletableFuture<List<RowInterface>> future = asyncHelper.findStoresByStoreNumber(1);
+            ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(AssertionError.class, e.getCause());
+            // The permits are released, so the next query is accepted
+            assertThrows(ExecutionException.class, () -> asyncHelper.findStoresByStoreNumber(2).get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test void callersContextIsCarriedIntoTheQuery() throws Exception {
+        QueryContext[] seen = new QueryContext[1];
+        StoreQueryHelper capturingHelper = new StoreQueryHelper(null) {
+            @Override
+            protected List<RowInterface> findByStoreNumber(int storeNumber) {
+                seen[0] = QueryContext.current();
+                return List.of();
+            }
+        };
+        try (AsyncQueryHelper asyncHelper = new AsyncQueryHelper(capturingHelper, null, null, 1, 1, 1000);
+             QueryContext context = QueryContext.open(Duration.ofSeconds(5))) {
+            asyncHelper.findStoresByStoreNumber(1).get(5, TimeUnit.SECONDS);
+            assertSame(context, seen[0]);
+        }
+    }
+}
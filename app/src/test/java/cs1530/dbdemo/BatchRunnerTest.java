@@ -0,0 +1,59 @@
+package cs1530.dbdemo;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs batches against stubbed helpers, so no database is needed
+ */
+class BatchRunnerTest {
+    @Test void badLinesAreReportedAndSkipped() throws IOException {
+        StringWriter target = new StringWriter();
+        ByteArrayOutputStream summaryBytes = new ByteArrayOutputStream();
+        BatchRunner runner = runner(target);
+        String input = String.join("\n",
+                "# a comment",
+                "",
+                "2,7",
+                "abc",
+                "99",
+                "2",
+                "2,x",
+                "14,2024-13-45,2024-11-30",
+                "2,8");
+        runner.run(new BufferedReader(new StringReader(input)), new PrintStream(summaryBytes, true, StandardCharsets.UTF_8));
+
+        assertEquals(7, runner.getCommandCount());
+        assertEquals(5, runner.getFailedCount());
+        assertEquals(2, runner.getRowCount());
+        assertEquals("storeNumber\n7\nstoreNumber\n8\n", target.toString());
+        String summary = summaryBytes.toString(StandardCharsets.UTF_8);
+        for (int lineNumber = 4; lineNumber <= 8; lineNumber++) {
+            assertTrue(summary.contains("Skipping line " + lineNumber + " "), summary);
+        }
+        assertTrue(summary.contains("Unknown option 99"), summary);
+        assertTrue(summary.contains("Expected 1 parameters but found 0"), summary);
+        assertTrue(summary.contains("Ran 7 commands (5 skipped) returning 2 rows"), summary);
+    }
+
+    private static BatchRunner runner(StringWriter target) {
+        StoreQueryHelper storeHelper = new StoreQueryHelper(null) {
+            @Override
+            protected List<RowInterface> findByStoreNumber(int storeNumber) {
+                return List.of(visitor -> visitor.visitInt("storeNumber", storeNumber));
+            }
+        };
+        return new BatchRunner(storeHelper, new CoffeeQueryHelper(null), new ReceiptQueryHelper(null),
+                RowWriter.forFormat("csv", new RowOutput(target)));
+    }
+}
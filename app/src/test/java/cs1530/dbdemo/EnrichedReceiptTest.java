@@ -0,0 +1,75 @@
+package cs1530.dbdemo;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the joined receipt queries return the same coffee and store
+ * details as looking the receipt, coffee and store up separately
+ */
+class EnrichedReceiptTest {
+    private static ConnectionPool pool;
+
+    @BeforeAll
+    static void createSchema() throws SQLException {
+        pool = new ConnectionPool("jdbc:h2:mem:enrichedReceiptTest;DB_CLOSE_DELAY=-1", new Properties(), 1, 2, 60_000, 5_000, 16);
+        SchemaManager schemaManager = new SchemaManager(pool);
+        schemaManager.migrate();
+        schemaManager.seed();
+    }
+
+    @AfterAll
+    static void dropDatabase() throws SQLException {
+        try (Connection conn = pool.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("DROP ALL OBJECTS");
+        }
+        pool.close();
+    }
+
+    @Test void joinedRowsMatchSeparateLookups() {
+        ReceiptQueryHelper receiptHelper = new ReceiptQueryHelper(pool);
+        List<RowInterface> enriched = receiptHelper.findEnrichedByStoreNumber(1);
+        assertEquals(receiptHelper.findByStoreNumber(1).size(), enriched.size());
+        assertFalse(enriched.isEmpty());
+        for (RowInterface row : enriched) {
+            assertMatchesLookups((EnrichedReceipt) row);
+        }
+    }
+
+    @Test void joinedRowsForACoffeeMatchSeparateLookups() {
+        ReceiptQueryHelper receiptHelper = new ReceiptQueryHelper(pool);
+        List<RowInterface> enriched = receiptHelper.findEnrichedByCoffeeID(1);
+        assertEquals(receiptHelper.findByCoffeeID(1).size(), enriched.size());
+        for (RowInterface row : enriched) {
+            assertMatchesLookups((EnrichedReceipt) row);
+        }
+    }
+
+    private static void assertMatchesLookups(EnrichedReceipt joined) {
+        Receipt receipt = (Receipt) new ReceiptQueryHelper(pool).findByReceiptID(joined.getReceiptId()).getFirst();
+        assertEquals(receipt.getStoreNumber(), joined.getStoreNumber());
+        assertEquals(receipt.getTimeOfPurchase(), joined.getTimeOfPurchase());
+        assertEquals(receipt.getCoffeeID(), joined.getCoffeeID());
+        assertEquals(receipt.getQuantity(), joined.getQuantity());
+
+        Store store = (Store) new StoreQueryHelper(pool).findByStoreNumber(receipt.getStoreNumber()).getFirst();
+        assertEquals(store.getCity(), joined.getStoreCity());
+
+        Coffee coffee = new CoffeeQueryHelper(pool).findAll().stream()
+                .map(Coffee.class::cast)
+                .filter(c -> c.getCoffeeID() == receipt.getCoffeeID())
+                .findFirst()
+                .orElseThrow();
+        assertEquals(coffee.getName(), joined.getCoffeeName());
+        assertEquals(coffee.getPrice(), joined.getPrice());
+    }
+}
@@ -0,0 +1,88 @@
+package cs1530.dbdemo;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the multi-key lookups against the seeded database, including
+ * lookups with more keys than fit in one statement
+ */
+class MultiGetQueryTest {
+    private static ConnectionPool pool;
+
+    @BeforeAll
+    static void createSchema() throws SQLException {
+        pool = new ConnectionPool("jdbc:h2:mem:multiGetQueryTest;DB_CLOSE_DELAY=-1", new Properties(), 1, 2, 60_000, 5_000, 16);
+        SchemaManager schemaManager = new SchemaManager(pool);
+        schemaManager.migrate();
+        schemaManager.seed();
+    }
+
+    @AfterAll
+    static void dropDatabase() throws SQLException {
+        try (Connection conn = pool.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("DROP ALL OBJECTS");
+        }
+        pool.close();
+    }
+
+    @Test void receiptsAreReturnedInKeyOrderWithDuplicates() {
+        MultiGetResult result = new ReceiptQueryHelper(pool).findByReceiptIDs(new int[]{7, 3, 7, 404});
+        assertFalse(result.isFailed());
+        assertEquals(List.of(7, 3, 7), receiptIDs(result.getRows()));
+        assertEquals(List.of(404), result.getMissingKeys());
+    }
+
+    @Test void receiptKeysAreChunkedPastTheStatementLimit() {
+        // 2500 distinct keys take three key lookups, and the seeded receipts lie in two partitions
+        int[] keys = range(1, 2500);
+        MultiGetResult result = new ReceiptQueryHelper(pool).findByReceiptIDs(keys);
+        assertFalse(result.isFailed());
+        assertEquals(5, result.getStatementCount());
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), receiptIDs(result.getRows()));
+        assertEquals(2490, result.getMissingKeys().size());
+        assertEquals(Integer.valueOf(11), result.getMissingKeys().getFirst());
+        assertEquals(Integer.valueOf(2500), result.getMissingKeys().getLast());
+    }
+
+    @Test void storesAreChunkedPastTheStatementLimit() {
+        int[] keys = range(1, 1001);
+        MultiGetResult result = new StoreQueryHelper(pool).findByStoreNumbers(keys);
+        assertFalse(result.isFailed());
+        assertEquals(2, result.getStatementCount());
+        assertEquals(1001 - result.getRows().size(), result.getMissingKeys().size());
+        assertEquals(Integer.valueOf(1001), result.getMissingKeys().getLast());
+        int previous = 0;
+        for (RowInterface row : result.getRows()) {
+            int storeNumber = ((Store) row).getStoreNumber();
+            assertTrue(storeNumber > previous);
+            previous = storeNumber;
+        }
+    }
+
+    private static int[] range(int first, int last) {
+        int[] keys = new int[last - first + 1];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = first + i;
+        }
+        return keys;
+    }
+
+    private static List<Integer> receiptIDs(List<RowInterface> rows) {
+        List<Integer> ids = new ArrayList<>();
+        for (RowInterface row : rows) {
+            ids.add(((Receipt) row).getReceiptId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,58 @@
+package cs1530.dbdemo;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultiGetResultTest {
+    private static final Store FIRST = new Store(1, "First", "sitting", "1 Main St", "Pittsburgh", "Pennsylvania");
+    private static final Store SECOND = new Store(2, "Second", "kiosk", "2 Main St", "Erie", "Pennsylvania");
+
+    @Test void rowsFollowTheRequestedKeyOrder() {
+        MultiGetResult result = MultiGetResult.inKeyOrder(new int[]{2, 1}, Map.of(1, FIRST, 2, SECOND), 1, false);
+        assertEquals(List.of(SECOND, FIRST), result.getRows());
+        assertFalse(result.hasMissingKeys());
+    }
+
+    @Test void duplicateKeysRepeatTheirRowAndAreReportedMissingOnce() {
+        MultiGetResult result = MultiGetResult.inKeyOrder(new int[]{1, 3, 1, 3, 2}, Map.of(1, FIRST, 2, SECOND), 1, false);
+        assertEquals(List.of(FIRST, FIRST, SECOND), result.getRows());
+        assertEquals(List.of(3), result.getMissingKeys());
+    }
+
+    @Test void failedLookupReportsNoKeysMissing() {
+        MultiGetResult result = MultiGetResult.inKeyOrder(new int[]{1, 3}, Map.of(1, FIRST), 1, true);
+        assertTrue(result.isFailed());
+        assertEquals(List.of(FIRST), result.getRows());
+        assertFalse(result.hasMissingKeys());
+    }
+
+    @Test void chunksStopAtTheEndOfTheKeys() {
+        int[] keys = new int[2001];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i;
+        }
+        assertEquals(1000, MultiGetResult.chunk(keys, 1000, 1000).length);
+        Integer[] last = MultiGetResult.chunk(keys, 2000, 1000);
+        assertArrayEquals(new Integer[]{2000}, last);
+    }
+
+    @Test void lookupsOnAFailingPoolAreMarkedFailed() throws SQLException {
+        // A closed pool fails every getConnection with an SQLException
+        ConnectionPool pool = new ConnectionPool("jdbc:h2:mem:unused", new Properties(), 0, 1, 60_000, 1_000, 0);
+        pool.close();
+
+        MultiGetResult stores = new StoreQueryHelper(pool).findByStoreNumbers(new int[]{1, 2});
+        assertTrue(stores.isFailed());
+        assertFalse(stores.hasMissingKeys());
+
+        MultiGetResult receipts = new ReceiptQueryHelper(pool).findByReceiptIDs(new int[]{1, 2});
+        assertTrue(receipts.isFailed());
+        assertFalse(receipts.hasMissingKeys());
+    }
+}
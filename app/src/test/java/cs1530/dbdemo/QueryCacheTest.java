@@ -0,0 +1,64 @@
+package cs1530.dbdemo;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryCacheTest {
+    @Test void servesCachedResultsUntilInvalidated() {
+        QueryCache<Integer, String> cache = new QueryCache<>("test", 10, 60_000);
+        assertNull(cache.get(1));
+        cache.put(1, "one", cache.generation());
+        assertEquals("one", cache.get(1));
+        cache.invalidateAll();
+        assertNull(cache.get(1));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test void resultOfAQueryRunningDuringAnInvalidationIsNotCached() {
+        QueryCache<Integer, String> cache = new QueryCache<>("test", 10, 60_000);
+        long generation = cache.generation();
+        cache.invalidateAll();
+        cache.put(1, "stale", generation);
+        assertNull(cache.get(1));
+    }
+
+    @Test void expiredResultsAreReloaded() throws InterruptedException {
+        QueryCache<Integer, String> cache = new QueryCache<>("test", 10, 1);
+        cache.put(1, "one", cache.generation());
+        Thread.sleep(20);
+        assertNull(cache.get(1));
+        assertEquals(1, cache.getExpirationCount());
+    }
+
+    @Test void evictsTheLeastRecentlyUsedResult() {
+        QueryCache<Integer, String> cache = new QueryCache<>("test", 2, 60_000);
+        cache.put(1, "one", cache.generation());
+        cache.put(2, "two", cache.generation());
+        cache.get(1);
+        cache.put(3, "three", cache.generation());
+        assertEquals(2, cache.size());
+        assertEquals("one", cache.get(1));
+        assertNull(cache.get(2));
+    }
+
+    @Test void helpersOnOnePoolShareACacheThatThePoolInvalidates() throws SQLException {
+        ConnectionPool pool = new ConnectionPool("jdbc:h2:mem:unused", new Properties(), 0, 1, 60_000, 1_000, 0);
+        try {
+            StoreQueryHelper writer = new StoreQueryHelper(pool);
+            StoreQueryHelper reader = new StoreQueryHelper(pool);
+            writer.getStoreNumberCache().put(7, List.of(), writer.getStoreNumberCache().generation());
+            assertEquals(List.of(), reader.getStoreNumberCache().get(7));
+
+            pool.invalidateStoreCache();
+            assertNull(reader.getStoreNumberCache().get(7));
+        } finally {
+            pool.close();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package cs1530.dbdemo;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the context's deadline and cancellation against a stubbed statement,
+ * so no database is needed
+ */
+class QueryContextTest {
+    @Test void deadlineCutsTheTimeoutAndThenFailsExecution() throws Exception {
+        List<String> calls = new CopyOnWriteArrayList<>();
+        try (QueryContext context = QueryContext.open(Duration.ofMillis(200))) {
+            PreparedStatement st = StatementTracker.wrap(stubStatement(calls), "SELECT 1");
+            st.setQueryTimeout(30);
+            assertEquals("setQueryTimeout 1", calls.getLast());
+            st.executeQuery();
+            assertEquals("executeQuery", calls.getLast());
+
+            Thread.sleep(250);
+            assertTrue(context.isExpired());
+            assertThrows(SQLTimeoutException.class, st::executeQuery);
+            assertEquals("executeQuery", calls.getLast());
+        }
+        assertNull(QueryContext.current());
+    }
+
+    @Test void cancelFromAnotherThreadStopsTheContextsStatements() throws Exception {
+        List<String> calls = new CopyOnWriteArrayList<>();
+        try (QueryContext context = QueryContext.open()) {
+            PreparedStatement st = StatementTracker.wrap(stubStatement(calls), "SELECT 1");
+            Thread canceller = new Thread(context::cancel);
+            canceller.start();
+            canceller.join();
+
+            assertTrue(context.isCancelled());
+            assertTrue(calls.contains("cancel"));
+            assertThrows(SQLTimeoutException.class, st::executeQuery);
+            assertFalse(calls.contains("executeQuery"));
+        }
+    }
+
+    @Test void closeRestoresTheOuterContext() {
+        try (QueryContext outer = QueryContext.open()) {
+            try (QueryContext inner = QueryContext.open(Duration.ofSeconds(5))) {
+                assertSame(inner, QueryContext.current());
+            }
+            assertSame(outer, QueryContext.current());
+        }
+        assertNull(QueryContext.current());
+    }
+
+    /**
+     * @return A statement that records the methods called on it and otherwise does nothing
+     */
+    static PreparedStatement stubStatement(List<String> calls) {
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    calls.add(method.getName().equals("setQueryTimeout") ? "setQueryTimeout " + args[0] : method.getName());
+                    Class<?> type = method.getReturnType();
+                    if (type == boolean.class) {
+                        return false;
+                    }
+                    if (type == int.class) {
+                        return 0;
+                    }
+                    return type == long.class ? 0L : null;
+                });
+    }
+}
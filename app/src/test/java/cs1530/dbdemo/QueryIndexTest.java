@@ -0,0 +1,191 @@
+package cs1530.dbdemo;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks H2's EXPLAIN output for the statements the helpers actually send,
+ * so that a filtered query silently falling back to a full table scan is
+ * caught. The pool records the SQL and parameters of the last statement a
+ * helper prepared, and the test explains that statement.
+ */
+class QueryIndexTest {
+    private static RecordingPool pool;
+
+    @BeforeAll
+    static void createSchema() throws SQLException {
+        pool = new RecordingPool("jdbc:h2:mem:queryIndexTest;DB_CLOSE_DELAY=-1");
+        SchemaManager schemaManager = new SchemaManager(pool);
+        schemaManager.migrate();
+        schemaManager.seed();
+    }
+
+    @AfterAll
+    static void closePool() {
+        pool.close();
+    }
+
+    @Test void storeTypeUsesIndex() throws SQLException {
+        new StoreQueryHelper(pool).findByStoreType("sitting");
+        assertUsesIndexes(List.of("STORE_TYPE_IDX"));
+    }
+
+    @Test void cityAndStateUsesCompositeIndex() throws SQLException {
+        new StoreQueryHelper(pool).findByCityAndState("Pittsburgh", "Pennsylvania");
+        assertUsesIndexes(List.of("STORE_CITY_STATE_IDX"));
+    }
+
+    @Test void coffeeNameUsesIndex() throws SQLException {
+        new CoffeeQueryHelper(pool).findByName("Latte");
+        assertUsesIndexes(List.of("COFFEE_NAME_IDX"));
+    }
+
+    @Test void coffeeIntensityUsesIndex() throws SQLException {
+        new CoffeeQueryHelper(pool).findByIntensity(5);
+        assertUsesIndexes(List.of("COFFEE_INTENSITY_IDX"));
+    }
+
+    @Test void coffeePriceRangeUsesIndex() throws SQLException {
+        new CoffeeQueryHelper(pool).findCoffeeInPriceRange(new BigDecimal("1.00"), new BigDecimal("2.00"));
+        assertUsesIndexes(List.of("COFFEE_PRICE_IDX"));
+    }
+
+    @Test void receiptStoreNumberUsesIndex() throws SQLException {
+        new ReceiptQueryHelper(pool).findByStoreNumber(1);
+        assertUsesIndexes(partitionIndexes("_STORE_TIME_IDX"));
+    }
+
+    @Test void receiptCoffeeIDUsesIndex() throws SQLException {
+        new ReceiptQueryHelper(pool).findByCoffeeID(1);
+        assertUsesIndexes(partitionIndexes("_COFFEE_IDX"));
+    }
+
+    @Test void receiptQuantityRangeUsesIndex() throws SQLException {
+        new ReceiptQueryHelper(pool).findReceiptInQuantityRange(2, 3);
+        assertUsesIndexes(partitionIndexes("_QUANTITY_IDX"));
+    }
+
+    @Test void receiptDateRangeUsesIndex() throws SQLException {
+        new ReceiptQueryHelper(pool).findReceiptInDateRange(Date.valueOf("2024-10-28"), Date.valueOf("2024-11-01"));
+        assertUsesIndexes(List.of("RECEIPT_P202410_TIME_IDX", "RECEIPT_P202411_TIME_IDX"));
+    }
+
+    @Test void receiptDateRangeOnlyReadsOverlappingPartitions() throws SQLException {
+        ReceiptPartitions partitions = pool.getReceiptPartitions();
+        assertEquals(List.of("RECEIPT_P202410", "RECEIPT_P202411"),
+                partitions.overlapping(Date.valueOf("2024-10-28"), Date.valueOf("2024-11-01")));
+        assertEquals(List.of("RECEIPT_P202411"),
+                partitions.overlapping(Date.valueOf("2024-11-01"), Date.valueOf("2024-12-31")));
+        assertEquals(List.of(), partitions.overlapping(Date.valueOf("2025-01-01"), Date.valueOf("2025-12-31")));
+    }
+
+    /**
+     * @return The named index of every receipt partition, such as RECEIPT_P202410_COFFEE_IDX
+     */
+    private static List<String> partitionIndexes(String suffix) throws SQLException {
+        List<String> indexes = new ArrayList<>();
+        indexes.add(ReceiptPartitions.DEFAULT_PARTITION + suffix);
+        for (YearMonth month : pool.getReceiptPartitions().getMonths()) {
+            indexes.add(ReceiptPartitions.tableName(month) + suffix);
+        }
+        return indexes;
+    }
+
+    /**
+     * Explains the last statement a helper prepared and checks that it reads
+     * every table through one of the expected indexes
+     */
+    private static void assertUsesIndexes(List<String> indexNames) throws SQLException {
+        RecordedStatement statement = pool.lastStatement;
+        assertNotNull(statement, "The helper did not prepare a statement");
+        String plan = explain(statement);
+        assertFalse(plan.contains("tableScan"), "Expected index lookups but got a table scan:\n" + plan);
+        for (String indexName : indexNames) {
+            // Matched as a whole name, so RECEIPT_P202410_TIME_IDX does not match RECEIPT_P202410_STORE_TIME_IDX
+            assertTrue(Pattern.compile("\\bPUBLIC\\." + Pattern.quote(indexName) + "(?![A-Z0-9_])").matcher(plan).find(),
+                    "Expected the plan to use " + indexName + ":\n" + plan);
+        }
+    }
+
+    private static String explain(RecordedStatement statement) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement st = conn.prepareStatement("EXPLAIN " + statement.sql())) {
+            for (Map.Entry<Integer, Object> parameter : statement.parameters().entrySet()) {
+                st.setObject(parameter.getKey(), parameter.getValue());
+            }
+            try (ResultSet rs = st.executeQuery()) {
+                StringBuilder plan = new StringBuilder();
+                while (rs.next()) {
+                    plan.append(rs.getString(1)).append('\n');
+                }
+                return plan.toString();
+            }
+        }
+    }
+
+    private record RecordedStatement(String sql, Map<Integer, Object> parameters) {
+    }
+
+    /**
+     * A pool whose connections record the SQL of each statement prepared on
+     * them and the parameters bound to it
+     */
+    private static final class RecordingPool extends ConnectionPool {
+        private volatile RecordedStatement lastStatement;
+
+        private RecordingPool(String url) throws SQLException {
+            super(url, new Properties(), 1, 2, 60_000, 5_000, 16);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection conn = super.getConnection();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        Object result = invoke(conn, method, args);
+                        if (!method.getName().equals("prepareStatement") || ((String) args[0]).startsWith("EXPLAIN ")) {
+                            return result;
+                        }
+                        RecordedStatement recorded = new RecordedStatement((String) args[0], new TreeMap<>());
+                        lastStatement = recorded;
+                        PreparedStatement st = (PreparedStatement) result;
+                        return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                                new Class<?>[]{PreparedStatement.class}, (stProxy, stMethod, stArgs) -> {
+                                    if (stMethod.getName().startsWith("set") && stArgs != null && stArgs.length == 2
+                                            && stArgs[0] instanceof Integer index) {
+                                        recorded.parameters().put(index, stArgs[1]);
+                                    }
+                                    return invoke(st, stMethod, stArgs);
+                                });
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package cs1530.dbdemo;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the paginated finders reject bad arguments before they
+ * borrow a connection, so the helper needs no database here
+ */
+class ReceiptPaginationTest {
+    private static final Date LOWER = Date.valueOf("2024-10-01");
+    private static final Date UPPER = Date.valueOf("2024-10-31");
+
+    private final ReceiptQueryHelper receiptHelper = new ReceiptQueryHelper(null);
+
+    @Test void rejectsNonPositivePageSizes() {
+        assertThrows(IllegalArgumentException.class, () -> receiptHelper.findAllPage(0, null));
+        assertThrows(IllegalArgumentException.class, () -> receiptHelper.findReceiptInDateRangePage(LOWER, UPPER, -1, null));
+    }
+
+    @Test void rejectsTokensWithTooFewValues() {
+        assertThrows(IllegalArgumentException.class, () -> receiptHelper.findAllPage(10, token("all")));
+        assertThrows(IllegalArgumentException.class,
+                () -> receiptHelper.findReceiptInDateRangePage(LOWER, UPPER, 10, token("dateRange:1")));
+    }
+
+    @Test void rejectsTokensFromAnotherQuery() {
+        assertThrows(IllegalArgumentException.class, () -> receiptHelper.findAllPage(10, token("dateRange:1:2:3:4:5")));
+        assertThrows(IllegalArgumentException.class, () -> receiptHelper.findAllPage(10, "not base64!"));
+    }
+
+    @Test void rejectsTokensFromAnotherDateRange() {
+        String otherRange = token("dateRange:" + Date.valueOf("2024-11-01").getTime() + ":" + UPPER.getTime() + ":0:0:1");
+        assertThrows(IllegalArgumentException.class,
+                () -> receiptHelper.findReceiptInDateRangePage(LOWER, UPPER, 10, otherRange));
+    }
+
+    private static String token(String contents) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(contents.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,109 @@
+package cs1530.dbdemo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReceiptPartitionsTest {
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void createSchema() throws SQLException {
+        pool = new ConnectionPool("jdbc:h2:mem:receiptPartitionsTest;DB_CLOSE_DELAY=-1", new Properties(), 1, 4, 60_000, 5_000, 16);
+        SchemaManager schemaManager = new SchemaManager(pool);
+        schemaManager.migrate();
+        schemaManager.seed();
+    }
+
+    @AfterEach
+    void dropDatabase() throws SQLException {
+        try (Connection conn = pool.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("DROP ALL OBJECTS");
+        }
+        pool.close();
+    }
+
+    @Test void helpersOnOnePoolShareThePartitionList() throws SQLException {
+        ReceiptQueryHelper writer = new ReceiptQueryHelper(pool);
+        ReceiptQueryHelper reader = new ReceiptQueryHelper(pool);
+        // The reader loads the list before the writer creates a new month
+        assertEquals(List.of(), reader.findReceiptInDateRange(Date.valueOf("2025-03-01"), Date.valueOf("2025-03-31")));
+
+        writer.insertReceipts(List.of(new Receipt(100, 1, Timestamp.valueOf("2025-03-05 10:00:00"), 1, 2)));
+
+        assertEquals(1, reader.findReceiptInDateRange(Date.valueOf("2025-03-01"), Date.valueOf("2025-03-31")).size());
+        assertEquals(1, new SalesQueryHelper(pool).salesByTimeBucket(SalesQueryHelper.TimeBucket.MONTH,
+                Date.valueOf("2025-03-01"), Date.valueOf("2025-03-31")).size());
+    }
+
+    @Test void insertIsRoutedToItsMonthsPartition() throws SQLException {
+        new ReceiptQueryHelper(pool).insertReceipts(List.of(new Receipt(100, 1, Timestamp.valueOf("2025-03-05 10:00:00"), 1, 2)));
+
+        assertEquals(1, count("SELECT COUNT(*) FROM RECEIPT_P202503 WHERE receiptID = 100"));
+        assertEquals(ReceiptPartitions.monthKey(YearMonth.of(2025, 3)),
+                count("SELECT partitionMonth FROM RECEIPT_KEY WHERE receiptID = 100"));
+    }
+
+    @Test void dropRemovesKeysTotalsAndTheViewMember() throws SQLException {
+        ReceiptQueryHelper helper = new ReceiptQueryHelper(pool);
+        assertTrue(helper.dropPartition(YearMonth.of(2024, 10)));
+
+        assertEquals(0, count("SELECT COUNT(*) FROM RECEIPT WHERE timeOfPurchase < '2024-11-01'"));
+        assertEquals(0, count("SELECT COUNT(*) FROM RECEIPT_KEY WHERE partitionMonth = "
+                + ReceiptPartitions.monthKey(YearMonth.of(2024, 10))));
+        assertEquals(0, count("SELECT COUNT(*) FROM SALES_DAILY_ROLLUP WHERE saleDate < '2024-11-01'"));
+        assertEquals(count("SELECT COUNT(*) FROM RECEIPT"), count("SELECT SUM(receiptCount) FROM SALES_DAILY_ROLLUP"));
+        assertEquals(0, count("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'RECEIPT_P202410'"));
+        assertFalse(pool.getReceiptPartitions().getMonths().contains(YearMonth.of(2024, 10)));
+        assertFalse(helper.dropPartition(YearMonth.of(2024, 10)));
+    }
+
+    @Test void dropWaitsForAWriterToCommit() throws Exception {
+        ReceiptPartitions partitions = pool.getReceiptPartitions();
+        YearMonth month = YearMonth.of(2024, 10);
+        Lock writer;
+        try (Connection conn = pool.getConnection()) {
+            writer = partitions.lockForWrite(conn, List.of(month));
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> dropped = executor.submit(() -> {
+                try (Connection conn = pool.getConnection()) {
+                    return partitions.drop(conn, month);
+                }
+            });
+            assertThrows(TimeoutException.class, () -> dropped.get(200, TimeUnit.MILLISECONDS));
+            writer.unlock();
+            assertTrue(dropped.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            assertTrue(rs.next());
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package cs1530.dbdemo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReceiptSnapshotTest {
+    @Test void groupsDenseKeys() {
+        ReceiptSnapshot snapshot = new ReceiptSnapshot();
+        snapshot.append(1, 2, 0, 7, 3);
+        snapshot.append(2, 1, 0, 7, 4);
+        snapshot.append(3, 2, 0, 8, 5);
+        assertEquals(Map.of(1, 4L, 2, 8L), snapshot.quantityByStore());
+        assertEquals(Map.of(7, 7L, 8, 5L), snapshot.quantityByCoffee());
+    }
+
+    @Test void groupsSparseAndNegativeKeysWithoutAHugeArray() {
+        ReceiptSnapshot snapshot = new ReceiptSnapshot();
+        snapshot.append(1, Integer.MAX_VALUE, 0, 1, 2);
+        snapshot.append(2, -5, 0, 1, 3);
+        snapshot.append(3, Integer.MAX_VALUE, 0, 1, 4);
+        assertEquals(Map.of(-5, 3L, Integer.MAX_VALUE, 6L), snapshot.quantityByStore());
+    }
+
+    @Test void growsPastTheInitialCapacity() {
+        ReceiptSnapshot snapshot = new ReceiptSnapshot();
+        for (int i = 0; i < 5000; i++) {
+            snapshot.append(i, i % 10, i, i % 3, 1);
+        }
+        assertEquals(5000, snapshot.size());
+        assertEquals(4999, snapshot.getReceiptID(4999));
+        assertEquals(5000, snapshot.totalQuantity());
+    }
+}
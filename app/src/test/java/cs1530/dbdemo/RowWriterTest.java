@@ -0,0 +1,112 @@
+package cs1530.dbdemo;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowWriterTest {
+    @Test void csvQuotesValuesWithSeparatorsQuotesAndLineBreaks() throws IOException {
+        String written = write("csv", new Coffee(1, "Plain", 3, 2.5), new Coffee(2, "Mocha, \"Large\"\nIced", 4, 3.0));
+        assertEquals("coffeeID,name,intensity,price\n" +
+                "1,Plain,3,2.5\n" +
+                "2,\"Mocha, \"\"Large\"\"\nIced\",4,3.0\n", written);
+    }
+
+    @Test void csvWritesNullsAsEmptyValues() throws IOException {
+        assertEquals("coffeeID,name,intensity,price\n3,,5,1.0\n", write("csv", new Coffee(3, null, 5, 1.0)));
+    }
+
+    @Test void csvRepeatsTheHeaderForEachResult() throws IOException {
+        StringWriter target = new StringWriter();
+        RowOutput out = new RowOutput(target);
+        RowWriter writer = RowWriter.forFormat("csv", out);
+        writer.beginResult();
+        writer.writeRow(new Coffee(1, "Latte", 3, 2.5));
+        writer.endResult();
+        writer.beginResult();
+        writer.writeRow(new SalesSummary.ByStore(7, 2, 5, new BigDecimal("12.50")));
+        writer.endResult();
+        writer.flush();
+        assertEquals("coffeeID,name,intensity,price\n1,Latte,3,2.5\n" +
+                "storeNumber,receiptCount,unitsSold,revenue\n7,2,5,12.50\n", target.toString());
+    }
+
+    @Test void jsonLinesEscapesStrings() throws IOException {
+        String written = write("jsonl", new Coffee(1, "Say \"hi\"\\\n\t\u0001", 3, 2.5));
+        assertEquals("{\"coffeeID\":1,\"name\":\"Say \\\"hi\\\"\\\\\\n\\t\\u0001\",\"intensity\":3,\"price\":2.5}\n", written);
+    }
+
+    @Test void jsonLinesWritesNullsAndNonFiniteDoublesAsNull() throws IOException {
+        assertEquals("{\"coffeeID\":1,\"name\":null,\"intensity\":3,\"price\":null}\n",
+                write("jsonl", new Coffee(1, null, 3, Double.NaN)));
+    }
+
+    @Test void jsonLinesQuotesTimestamps() throws IOException {
+        String written = write("jsonl", new Receipt(1, 2, Timestamp.valueOf("2024-10-28 09:30:40"), 3, 4));
+        assertEquals("{\"receiptId\":1,\"storeNumber\":2,\"timeOfPurchase\":\"2024-10-28 09:30:40.0\",\"coffeeID\":3,\"quantity\":4}\n",
+                written);
+    }
+
+    @Test void tableEndsEachResultWithTwoBlankLines() throws IOException {
+        String written = write("table", new Coffee(1, "Latte", 3, 2.5));
+        assertTrue(written.endsWith("{coffeeID=1, name='Latte', intensity=3, price=2.5}\n\n\n"), written);
+        assertFalse(written.endsWith("\n\n\n\n"), written);
+    }
+
+    @Test void discardedOutputIsNeverWritten() throws IOException {
+        StringWriter target = new StringWriter();
+        RowOutput out = new RowOutput(target);
+        out.append("partial row");
+        out.discard();
+        out.append("next");
+        out.flush();
+        assertEquals("next", target.toString());
+    }
+
+    @Test void timestampsAreWrittenAsToStringWritesThem() throws IOException {
+        TimeZone original = TimeZone.getDefault();
+        // A zone with daylight saving time, so both of its offsets are covered
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        try {
+            Random random = new Random(42);
+            for (int i = 0; i < 10_000; i++) {
+                // Between 1900 and 2100, with a few whole seconds and whole millis
+                Timestamp value = new Timestamp(-2_208_988_800_000L + (long) (random.nextDouble() * 6_311_433_600_000L));
+                if (i % 3 == 0) {
+                    value.setNanos(random.nextInt(1_000_000_000));
+                } else if (i % 3 == 1) {
+                    value.setNanos(0);
+                }
+                StringWriter target = new StringWriter();
+                RowOutput out = new RowOutput(target);
+                out.append(value).flush();
+                assertEquals(value.toString(), target.toString());
+            }
+        } finally {
+            TimeZone.setDefault(original);
+        }
+    }
+
+    @Test void unknownFormatIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> RowWriter.forFormat("xml", new RowOutput(new StringWriter())));
+    }
+
+    private static String write(String format, RowInterface... rows) throws IOException {
+        StringWriter target = new StringWriter();
+        RowWriter writer = RowWriter.forFormat(format, new RowOutput(target));
+        writer.beginResult();
+        for (RowInterface row : rows) {
+            writer.writeRow(row);
+        }
+        writer.endResult();
+        writer.flush();
+        return target.toString();
+    }
+}
@@ -0,0 +1,75 @@
+package cs1530.dbdemo;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlowQueryLogTest {
+    @Test void slowQueryIsLoggedWithItsStatementsAndParameters() throws Exception {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        SlowQueryLog.setOutput(new PrintStream(log, true, StandardCharsets.UTF_8));
+        SlowQueryLog.setThresholdMillis(0);
+        try {
+            QueryTimer timer = QueryMetrics.start("test.slowQuery");
+            PreparedStatement st = StatementTracker.wrap(QueryContextTest.stubStatement(new ArrayList<>()),
+                    "SELECT * FROM STORE WHERE storeNumber = ? AND city = ? AND state = ?");
+            st.setInt(1, 5);
+            st.setNull(2, Types.VARCHAR);
+            st.setString(3, "Ohio");
+            st.executeQuery();
+            timer.stop(1);
+        } finally {
+            SlowQueryLog.setThresholdMillis(-1);
+            SlowQueryLog.setOutput(System.err);
+        }
+        String written = log.toString(StandardCharsets.UTF_8);
+        assertTrue(written.contains("Slow query test.slowQuery took"), written);
+        assertTrue(written.contains("with 1 rows"), written);
+        assertTrue(written.contains("SELECT * FROM STORE WHERE storeNumber = ? AND city = ? AND state = ? [5, null, 'Ohio']"),
+                written);
+    }
+
+    @Test void detachedTimerStopsCollectingStatements() {
+        SlowQueryLog.setThresholdMillis(0);
+        SlowQueryLog.setOutput(new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8));
+        try {
+            QueryTimer outer = QueryMetrics.start("test.outer");
+            QueryTimer streaming = QueryMetrics.start("test.streaming");
+            assertSame(streaming, QueryTimer.current());
+            streaming.detach();
+            assertSame(outer, QueryTimer.current());
+            streaming.stop(0);
+            outer.stop(0);
+            assertNull(QueryTimer.current());
+        } finally {
+            SlowQueryLog.setThresholdMillis(-1);
+            SlowQueryLog.setOutput(System.err);
+        }
+    }
+
+    @Test void timerThatIsNeverStoppedIsNotKeptByItsThread() throws InterruptedException {
+        SlowQueryLog.setThresholdMillis(0);
+        try {
+            WeakReference<QueryTimer> abandoned = new WeakReference<>(QueryMetrics.start("test.abandoned"));
+            List<byte[]> pressure = new ArrayList<>();
+            for (int i = 0; i < 100 && abandoned.get() != null; i++) {
+                System.gc();
+                pressure.add(new byte[1024]);
+                Thread.sleep(10);
+            }
+            assertNull(abandoned.get());
+            assertNull(QueryTimer.current());
+        } finally {
+            SlowQueryLog.setThresholdMillis(-1);
+        }
+    }
+}
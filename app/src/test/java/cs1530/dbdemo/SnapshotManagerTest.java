@@ -0,0 +1,150 @@
+package cs1530.dbdemo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotManagerTest {
+    @TempDir
+    Path directory;
+
+    @Test void restoreBringsBackTheExportedRowsKeysAndRollup() throws Exception {
+        ConnectionPool pool = new ConnectionPool("jdbc:h2:mem:snapshotManagerTest;DB_CLOSE_DELAY=-1", new Properties(),
+                1, 4, 60_000, 5_000, 16);
+        try {
+            SchemaManager schemaManager = new SchemaManager(pool);
+            schemaManager.migrate();
+            schemaManager.seed();
+            new SyntheticDataGenerator(3, 20, 5, LocalDate.of(2024, 1, 1), 90).load(pool, 2000);
+            List<String> exported = describeDatabase(pool);
+
+            SnapshotManager snapshots = new SnapshotManager(pool, 4);
+            SnapshotResult exportResult = snapshots.export(directory);
+
+            // Changed after the export, so the restore has to undo it
+            ReceiptQueryHelper receiptHelper = new ReceiptQueryHelper(pool);
+            assertTrue(receiptHelper.dropPartition(YearMonth.of(2024, 2)));
+            receiptHelper.insertReceipts(List.of(new Receipt(100_000, 1, Timestamp.valueOf("2026-05-05 10:00:00"), 1, 1)));
+            assertNotEquals(exported, describeDatabase(pool));
+
+            SnapshotResult restoreResult = snapshots.restore(directory);
+            assertEquals(exportResult.getRowCount(), restoreResult.getRowCount());
+            assertEquals(exported, describeDatabase(pool));
+        } finally {
+            try (Connection conn = pool.getConnection(); Statement st = conn.createStatement()) {
+                st.execute("DROP ALL OBJECTS");
+            }
+            pool.close();
+        }
+    }
+
+    @Test void restoreKeepsNullIntegersNull() throws Exception {
+        ConnectionPool pool = new ConnectionPool("jdbc:h2:mem:snapshotManagerNullTest;DB_CLOSE_DELAY=-1", new Properties(),
+                1, 4, 60_000, 5_000, 16);
+        try {
+            SchemaManager schemaManager = new SchemaManager(pool);
+            schemaManager.migrate();
+            schemaManager.seed();
+            try (Connection conn = pool.getConnection(); Statement st = conn.createStatement()) {
+                st.executeUpdate("INSERT INTO COFFEE VALUES (900, 'Unrated', NULL, NULL)");
+                st.executeUpdate("INSERT INTO RECEIPT_KEY VALUES (900001, " + ReceiptPartitions.monthKey(YearMonth.of(2024, 10)) + ")");
+                st.executeUpdate("INSERT INTO RECEIPT_P202410 VALUES (900001, NULL, TIMESTAMP '2024-10-02 08:00:00', NULL, NULL)");
+                st.executeUpdate("INSERT INTO RECEIPT_KEY VALUES (900002, " + ReceiptPartitions.DEFAULT_MONTH_KEY + ")");
+                st.executeUpdate("INSERT INTO " + ReceiptPartitions.DEFAULT_PARTITION + " VALUES (900002, 1, NULL, 900, NULL)");
+            }
+            List<String> exported = describeDatabase(pool);
+            exported.addAll(query(pool, "SELECT * FROM COFFEE ORDER BY coffeeID"));
+
+            SnapshotManager snapshots = new SnapshotManager(pool, 2);
+            snapshots.export(directory);
+            snapshots.restore(directory);
+
+            List<String> restored = describeDatabase(pool);
+            restored.addAll(query(pool, "SELECT * FROM COFFEE ORDER BY coffeeID"));
+            assertEquals(exported, restored);
+            assertEquals(List.of("900|Unrated|null|null|"), query(pool, "SELECT * FROM COFFEE WHERE coffeeID = 900"));
+            assertEquals(List.of("900001|null|2024-10-02 08:00:00|null|null|"),
+                    query(pool, "SELECT * FROM RECEIPT WHERE receiptID = 900001"));
+        } finally {
+            try (Connection conn = pool.getConnection(); Statement st = conn.createStatement()) {
+                st.execute("DROP ALL OBJECTS");
+            }
+            pool.close();
+        }
+    }
+
+    @Test void manifestWithAnInvalidTableNameIsRejected() throws Exception {
+        for (String table : List.of("RECEIPT_P202413", "RECEIPT_P000000", "RECEIPT_PX", "RECEIPT_KEY", "STORE; DROP")) {
+            Files.writeString(directory.resolve("MANIFEST"), "STORE 0\nCOFFEE 0\n" + table + " 0\n");
+            IOException e = assertThrows(IOException.class, () -> restoreWithoutDatabase(directory));
+            assertTrue(e.getMessage().contains("invalid line"), e.getMessage());
+        }
+    }
+
+    @Test void manifestWithABadRowCountIsRejected() throws Exception {
+        for (String line : List.of("COFFEE -1", "COFFEE many", "COFFEE", "COFFEE 1 2")) {
+            Files.writeString(directory.resolve("MANIFEST"), "STORE 0\n" + line + "\n");
+            assertThrows(IOException.class, () -> restoreWithoutDatabase(directory));
+        }
+    }
+
+    @Test void missingOrCorruptFilesAreRejectedBeforeTheDatabaseIsTouched() throws Exception {
+        Files.writeString(directory.resolve("MANIFEST"), "STORE 0\nCOFFEE 0\n");
+        // The pool is closed, so reaching the database would fail with an SQLException instead
+        assertThrows(IOException.class, () -> restoreWithoutDatabase(directory));
+        Files.write(directory.resolve("STORE.snap"), new byte[]{1, 2, 3});
+        Files.write(directory.resolve("COFFEE.snap"), new byte[]{1, 2, 3});
+        assertThrows(IOException.class, () -> restoreWithoutDatabase(directory));
+    }
+
+    private static void restoreWithoutDatabase(Path directory) throws SQLException, IOException {
+        ConnectionPool pool = new ConnectionPool("jdbc:h2:mem:unused", new Properties(), 0, 1, 60_000, 1_000, 0);
+        pool.close();
+        new SnapshotManager(pool, 2).restore(directory);
+    }
+
+    /**
+     * @return Every row of the tables a snapshot restores or rebuilds, in a fixed order
+     */
+    private static List<String> describeDatabase(ConnectionPool pool) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        rows.addAll(query(pool, "SELECT COUNT(*) FROM STORE"));
+        rows.addAll(query(pool, "SELECT COUNT(*) FROM COFFEE"));
+        rows.addAll(query(pool, "SELECT * FROM RECEIPT ORDER BY receiptID"));
+        rows.addAll(query(pool, "SELECT receiptID, partitionMonth FROM RECEIPT_KEY ORDER BY receiptID"));
+        rows.addAll(query(pool, "SELECT * FROM SALES_DAILY_ROLLUP ORDER BY saleDate, storeNumber, coffeeID"));
+        return rows;
+    }
+
+    private static List<String> query(ConnectionPool pool, String sql) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Connection conn = pool.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            int columns = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                StringBuilder row = new StringBuilder();
+                for (int i = 1; i <= columns; i++) {
+                    row.append(rs.getString(i)).append('|');
+                }
+                rows.add(row.toString());
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,51 @@
+package cs1530.dbdemo;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyntheticDataGeneratorTest {
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+
+    @Test void sameSeedGeneratesTheSameRows() {
+        assertEquals(describe(generate(42)), describe(generate(42)));
+    }
+
+    @Test void differentSeedsGenerateDifferentRows() {
+        assertNotEquals(describe(generate(42)), describe(generate(43)));
+    }
+
+    @Test void rowsStayWithinTheConfiguredRanges() {
+        List<Receipt> receipts = generate(7);
+        Timestamp first = Timestamp.valueOf(FIRST_DAY.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(FIRST_DAY.plusDays(30).atStartOfDay());
+        for (int i = 0; i < receipts.size(); i++) {
+            Receipt receipt = receipts.get(i);
+            assertEquals(100 + i, receipt.getReceiptId());
+            assertTrue(receipt.getStoreNumber() >= 1 && receipt.getStoreNumber() <= 20);
+            assertTrue(receipt.getCoffeeID() >= 1 && receipt.getCoffeeID() <= 5);
+            assertTrue(receipt.getQuantity() >= 1 && receipt.getQuantity() <= 5);
+            assertFalse(receipt.getTimeOfPurchase().before(first));
+            assertTrue(receipt.getTimeOfPurchase().before(end));
+        }
+    }
+
+    @Test void invalidCountsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new SyntheticDataGenerator(1, 0, 5, FIRST_DAY, 30));
+        assertThrows(IllegalArgumentException.class, () -> new SyntheticDataGenerator(1, 20, 5, FIRST_DAY, 30).load(null, -5));
+    }
+
+    private static List<Receipt> generate(long seed) {
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(seed, 20, 5, FIRST_DAY, 30);
+        return generator.generateReceipts(new SplittableRandom(seed), 100, 1000);
+    }
+
+    private static List<String> describe(List<Receipt> receipts) {
+        return receipts.stream().map(Receipt::toString).toList();
+    }
+}
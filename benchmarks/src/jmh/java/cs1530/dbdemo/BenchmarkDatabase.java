@@ -0,0 +1,183 @@
+/**
+ * A private H2 database for a single benchmark trial, in memory unless
+ * another storage profile is asked for, in which case its files are kept
+ * in a temporary directory that is deleted on close. The schema manager
+ * creates and seeds the tables, and the add methods grow a table to the
+ * size requested by the benchmark's parameters.
+ */
+
+package cs1530.dbdemo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+final class BenchmarkDatabase implements AutoCloseable {
+    // SchemaManager.seed inserts ten rows into each table
+    static final int SEEDED_ROWS = 10;
+    private static final int LOAD_CHUNK_SIZE = 100_000;
+    private static final long FIRST_PURCHASE_MILLIS = Timestamp.valueOf("2024-01-01 00:00:00").getTime();
+    private static final long PURCHASE_WINDOW_MILLIS = 365L * 24 * 60 * 60 * 1000;
+    private static final AtomicInteger DATABASE_COUNTER = new AtomicInteger();
+
+    final ConnectionPool pool;
+    final SchemaManager schemaManager;
+    final StoreQueryHelper storeHelper;
+    final CoffeeQueryHelper coffeeHelper;
+    final ReceiptQueryHelper receiptHelper;
+    // The directory holding the database files, or null for an in-memory database
+    private final Path directory;
+
+    BenchmarkDatabase() throws SQLException {
+        this(StorageProfile.IN_MEMORY);
+    }
+
+    BenchmarkDatabase(StorageProfile profile) throws SQLException {
+        String name = "benchmark" + DATABASE_COUNTER.incrementAndGet();
+        try {
+            directory = profile.isInMemory() ? null : Files.createTempDirectory("dbdemo-benchmark");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String url = profile.url(directory == null ? name : directory.resolve(name).toString());
+        pool = new ConnectionPool(url, new Properties(), 1, 4, 60_000, 30_000, 64);
+        schemaManager = new SchemaManager(pool);
+        schemaManager.migrate();
+        schemaManager.seed();
+        storeHelper = new StoreQueryHelper(pool);
+        coffeeHelper = new CoffeeQueryHelper(pool);
+        receiptHelper = new ReceiptQueryHelper(pool);
+    }
+
+    /**
+     * Adds stores until the STORE table holds totalRows rows
+     */
+    void addStores(int totalRows) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement st = conn.prepareStatement("INSERT INTO STORE VALUES (?, ?, ?, ?, ?, ?)")) {
+            conn.setAutoCommit(false);
+            for (int storeNumber = SEEDED_ROWS + 1; storeNumber <= totalRows; storeNumber++) {
+                st.setInt(1, storeNumber);
+                st.setString(2, "Store " + storeNumber);
+                st.setString(3, storeNumber % 3 == 0 ? "digital" : storeNumber % 3 == 1 ? "sitting" : "drive-through");
+                st.setString(4, "Street " + storeNumber % 1000);
+                st.setString(5, "City " + storeNumber % 500);
+                st.setString(6, "State " + storeNumber % 50);
+                st.addBatch();
+                if (storeNumber % LOAD_CHUNK_SIZE == 0) {
+                    st.executeBatch();
+                    conn.commit();
+                }
+            }
+            st.executeBatch();
+            conn.commit();
+        }
+        storeHelper.invalidateCache();
+    }
+
+    /**
+     * Adds coffees until the COFFEE table holds totalRows rows
+     */
+    void addCoffees(int totalRows) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement st = conn.prepareStatement("INSERT INTO COFFEE VALUES (?, ?, ?, ?)")) {
+            conn.setAutoCommit(false);
+            for (int coffeeID = SEEDED_ROWS + 1; coffeeID <= totalRows; coffeeID++) {
+                st.setInt(1, coffeeID);
+                st.setString(2, "Coffee " + coffeeID);
+                st.setInt(3, coffeeID % 10 + 1);
+                st.setBigDecimal(4, BigDecimal.valueOf(100 + coffeeID % 400, 2));
+                st.addBatch();
+                if (coffeeID % LOAD_CHUNK_SIZE == 0) {
+                    st.executeBatch();
+                    conn.commit();
+                }
+            }
+            st.executeBatch();
+            conn.commit();
+        }
+        coffeeHelper.invalidateCache();
+    }
+
+    /**
+     * Adds receipts for the seeded stores and coffees until the RECEIPT
+     * table holds totalRows rows
+     */
+    void addReceipts(int totalRows) {
+        int nextReceiptID = SEEDED_ROWS + 1;
+        while (nextReceiptID <= totalRows) {
+            int count = Math.min(LOAD_CHUNK_SIZE, totalRows - nextReceiptID + 1);
+            receiptHelper.insertReceipts(generateReceipts(nextReceiptID, count, nextReceiptID));
+            nextReceiptID += count;
+        }
+    }
+
+    /**
+     * Drops every receipt partition and reseeds, leaving only the seeded receipts
+     */
+    void resetReceipts() throws SQLException {
+        for (YearMonth month : receiptHelper.findPartitionMonths()) {
+            receiptHelper.dropPartition(month);
+        }
+        schemaManager.seed();
+    }
+
+    /**
+     * Generates receipts with consecutive IDs that reference the seeded stores and coffees
+     *
+     * @param firstReceiptID The receiptID of the first generated receipt
+     * @param count The number of receipts to generate
+     * @param seed The random seed, so that runs are reproducible
+     */
+    static List<Receipt> generateReceipts(int firstReceiptID, int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Receipt> receipts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            receipts.add(new Receipt(firstReceiptID + i,
+                    random.nextInt(SEEDED_ROWS) + 1,
+                    new Timestamp(FIRST_PURCHASE_MILLIS + random.nextLong(PURCHASE_WINDOW_MILLIS)),
+                    random.nextInt(SEEDED_ROWS) + 1,
+                    random.nextInt(5) + 1));
+        }
+        return receipts;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement st = conn.createStatement()) {
+            st.execute("SHUTDOWN");
+        } finally {
+            pool.close();
+            deleteDirectory();
+        }
+    }
+
+    private void deleteDirectory() {
+        if (directory == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
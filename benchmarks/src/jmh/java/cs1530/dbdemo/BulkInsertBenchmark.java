@@ -0,0 +1,62 @@
+/**
+ * Benchmarks for ReceiptQueryHelper.insertReceipts. Each invocation inserts
+ * rowCount receipts into an otherwise freshly seeded RECEIPT table, for a
+ * few different batch sizes.
+ */
+
+package cs1530.dbdemo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BulkInsertBenchmark {
+    @Param({"10", "1000", "100000", "10000000"})
+    public int rowCount;
+
+    @Param({"100", "1000", "10000"})
+    public int batchSize;
+
+    private BenchmarkDatabase database;
+    private List<Receipt> receipts;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new BenchmarkDatabase();
+        database.receiptHelper.setBatchSize(batchSize);
+        receipts = BenchmarkDatabase.generateReceipts(BenchmarkDatabase.SEEDED_ROWS + 1, rowCount, rowCount);
+    }
+
+    @Setup(Level.Invocation)
+    public void removeInsertedReceipts() throws SQLException {
+        database.resetReceipts();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        database.close();
+    }
+
+    @Benchmark
+    public BatchInsertResult insertReceipts() {
+        return database.receiptHelper.insertReceipts(receipts);
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Benchmarks for the CoffeeQueryHelper finders over COFFEE tables of
+ * increasing size. The name and intensity lookups cycle through their keys
+ * so that their results reflect the helper's cache as well as the database.
+ */
+
+package cs1530.dbdemo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CoffeeQueryBenchmark {
+    @Param({"10", "1000", "100000", "10000000"})
+    public int rowCount;
+
+    private BenchmarkDatabase database;
+    private int nextCoffeeID;
+    private int nextIntensity;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new BenchmarkDatabase();
+        database.addCoffees(rowCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        database.close();
+    }
+
+    @Benchmark
+    public List<RowInterface> findAll() {
+        return database.coffeeHelper.findAll();
+    }
+
+    @Benchmark
+    public List<RowInterface> findByName() {
+        nextCoffeeID = nextCoffeeID % rowCount + 1;
+        String name = nextCoffeeID <= BenchmarkDatabase.SEEDED_ROWS ? "Latte" : "Coffee " + nextCoffeeID;
+        return database.coffeeHelper.findByName(name);
+    }
+
+    @Benchmark
+    public List<RowInterface> findByIntensity() {
+        nextIntensity = nextIntensity % 10 + 1;
+        return database.coffeeHelper.findByIntensity(nextIntensity);
+    }
+
+    @Benchmark
+    public List<RowInterface> findCoffeeInPriceRange() {
+        return database.coffeeHelper.findCoffeeInPriceRange(new BigDecimal("2.00"), new BigDecimal("2.10"));
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Benchmarks for App.printResultRows. Standard output is redirected to a
+ * stream that discards everything, so the results measure formatting and
+ * writing rather than the speed of the terminal.
+ */
+
+package cs1530.dbdemo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PrintResultRowsBenchmark {
+    @Param({"10", "1000", "100000", "10000000"})
+    public int rowCount;
+
+    private List<RowInterface> receipts;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        receipts = new ArrayList<>(BenchmarkDatabase.generateReceipts(1, rowCount, rowCount));
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public void printResultRows() {
+        App.printResultRows(receipts);
+    }
+}
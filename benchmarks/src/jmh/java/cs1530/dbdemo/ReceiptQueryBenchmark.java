@@ -0,0 +1,75 @@
+/**
+ * Benchmarks for the ReceiptQueryHelper finders over RECEIPT tables of
+ * increasing size. Point lookups cycle through every receiptID.
+ */
+
+package cs1530.dbdemo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReceiptQueryBenchmark {
+    @Param({"10", "1000", "100000", "10000000"})
+    public int rowCount;
+
+    private BenchmarkDatabase database;
+    private int nextReceiptID;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new BenchmarkDatabase();
+        database.addReceipts(rowCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        database.close();
+    }
+
+    @Benchmark
+    public List<RowInterface> findAll() {
+        return database.receiptHelper.findAll();
+    }
+
+    @Benchmark
+    public List<RowInterface> findByReceiptID() {
+        nextReceiptID = nextReceiptID % rowCount + 1;
+        return database.receiptHelper.findByReceiptID(nextReceiptID);
+    }
+
+    @Benchmark
+    public List<RowInterface> findByStoreNumber() {
+        return database.receiptHelper.findByStoreNumber(3);
+    }
+
+    @Benchmark
+    public List<RowInterface> findByCoffeeID() {
+        return database.receiptHelper.findByCoffeeID(4);
+    }
+
+    @Benchmark
+    public List<RowInterface> findReceiptInQuantityRange() {
+        return database.receiptHelper.findReceiptInQuantityRange(5, 5);
+    }
+
+    @Benchmark
+    public List<RowInterface> findReceiptInDateRange() {
+        return database.receiptHelper.findReceiptInDateRange(Date.valueOf("2024-03-01"), Date.valueOf("2024-03-07"));
+    }
+}
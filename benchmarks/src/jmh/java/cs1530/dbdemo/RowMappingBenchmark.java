@@ -0,0 +1,73 @@
+/**
+ * Benchmarks for converting RECEIPT rows into Receipt objects, comparing
+ * the ordinal-based RowMapper used by the helpers against looking every
+ * column up by name on every row.
+ */
+
+package cs1530.dbdemo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RowMappingBenchmark {
+    @Param({"10", "1000", "100000", "10000000"})
+    public int rowCount;
+
+    private BenchmarkDatabase database;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new BenchmarkDatabase();
+        database.addReceipts(rowCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        database.close();
+    }
+
+    @Benchmark
+    public void mapByOrdinal(Blackhole blackhole) throws SQLException {
+        try (Connection conn = database.pool.getConnection();
+             PreparedStatement st = conn.prepareStatement("SELECT * FROM RECEIPT")) {
+            ResultSet rs = st.executeQuery();
+            RowMapper<Receipt> receiptMapper = ReceiptQueryHelper.bindReceiptMapper(rs);
+            while (rs.next()) {
+                blackhole.consume(receiptMapper.mapRow(rs));
+            }
+        }
+    }
+
+    @Benchmark
+    public void mapByName(Blackhole blackhole) throws SQLException {
+        try (Connection conn = database.pool.getConnection();
+             PreparedStatement st = conn.prepareStatement("SELECT * FROM RECEIPT")) {
+            ResultSet rs = st.executeQuery();
+            while (rs.next()) {
+                blackhole.consume(new Receipt(rs.getInt("receiptID"),
+                        rs.getInt("storeNumber"),
+                        rs.getTimestamp("timeOfPurchase"),
+                        rs.getInt("coffeeID"),
+                        rs.getInt("quantity")));
+            }
+        }
+    }
+}
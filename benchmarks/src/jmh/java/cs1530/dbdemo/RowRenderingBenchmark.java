@@ -0,0 +1,52 @@
+/**
+ * Benchmarks for the RowWriters, rendering rowCount receipts in each
+ * output format into a Writer that discards everything, so the results
+ * measure formatting rather than the speed of the destination.
+ */
+
+package cs1530.dbdemo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RowRenderingBenchmark {
+    @Param({"10", "1000", "100000", "10000000"})
+    public int rowCount;
+
+    @Param({"table", "csv", "jsonl"})
+    public String format;
+
+    private List<Receipt> receipts;
+    private RowWriter writer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        receipts = BenchmarkDatabase.generateReceipts(1, rowCount, rowCount);
+        writer = RowWriter.forFormat(format, new RowOutput(Writer.nullWriter()));
+    }
+
+    @Benchmark
+    public void renderRows() throws IOException {
+        writer.beginResult();
+        for (Receipt receipt : receipts) {
+            writer.writeRow(receipt);
+        }
+        writer.endResult();
+        writer.flush();
+    }
+}
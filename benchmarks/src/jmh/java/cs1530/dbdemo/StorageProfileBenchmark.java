@@ -0,0 +1,93 @@
+/**
+ * Runs the same receipt workload against each storage profile: batched
+ * inserts of new receipts, point lookups by receiptID, and the store and
+ * date range finders. Comparing the profiles shows what the file
+ * profiles' durability costs over an in-memory database, and what the
+ * ingest profile's deferred commits save on inserts.
+ */
+
+package cs1530.dbdemo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StorageProfileBenchmark {
+    // The receipts added by each insertReceipts invocation
+    private static final int INSERT_COUNT = 10_000;
+
+    @Param({"IN_MEMORY", "FILE", "FILE_INGEST"})
+    public StorageProfile profile;
+
+    @Param({"100000", "1000000"})
+    public int rowCount;
+
+    private BenchmarkDatabase database;
+    private int nextReceiptID;
+    private int nextInsertID;
+    private List<Receipt> pendingInserts;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new BenchmarkDatabase(profile);
+        database.addReceipts(rowCount);
+        nextInsertID = rowCount + 1;
+    }
+
+    /**
+     * Generates receipts with unused receiptIDs for the next insert, outside the measurement
+     */
+    @Setup(Level.Iteration)
+    public void generateInserts() {
+        pendingInserts = BenchmarkDatabase.generateReceipts(nextInsertID, INSERT_COUNT, nextInsertID);
+        nextInsertID += INSERT_COUNT;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        database.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public BatchInsertResult insertReceipts() {
+        return database.receiptHelper.insertReceipts(pendingInserts);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public List<RowInterface> findByReceiptID() {
+        nextReceiptID = nextReceiptID % rowCount + 1;
+        return database.receiptHelper.findByReceiptID(nextReceiptID);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public List<RowInterface> findByStoreNumber() {
+        return database.receiptHelper.findByStoreNumber(3);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public List<RowInterface> findReceiptInDateRange() {
+        return database.receiptHelper.findReceiptInDateRange(Date.valueOf("2024-03-01"), Date.valueOf("2024-03-07"));
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Benchmarks for the StoreQueryHelper finders over STORE tables of
+ * increasing size. findByStoreNumber cycles through every storeNumber so
+ * that its results reflect the helper's cache as well as the database.
+ */
+
+package cs1530.dbdemo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StoreQueryBenchmark {
+    @Param({"10", "1000", "100000", "10000000"})
+    public int rowCount;
+
+    private BenchmarkDatabase database;
+    private int nextStoreNumber;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new BenchmarkDatabase();
+        database.addStores(rowCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        database.close();
+    }
+
+    @Benchmark
+    public List<RowInterface> findAll() {
+        return database.storeHelper.findAll();
+    }
+
+    @Benchmark
+    public List<RowInterface> findByStoreNumber() {
+        nextStoreNumber = nextStoreNumber % rowCount + 1;
+        return database.storeHelper.findByStoreNumber(nextStoreNumber);
+    }
+
+    @Benchmark
+    public List<RowInterface> findByStoreType() {
+        return database.storeHelper.findByStoreType("drive-through");
+    }
+
+    @Benchmark
+    public List<RowInterface> findByCityAndState() {
+        return database.storeHelper.findByCityAndState("Pittsburgh", "Pennsylvania");
+    }
+}